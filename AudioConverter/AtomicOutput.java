@@ -0,0 +1,114 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fichier de sortie écrit à côté de sa destination sous un nom temporaire
+ * caché ({@code .nom.xxxx.part}), puis renommé atomiquement une fois complet
+ * et synchronisé. Un arrêt ou un plantage ne laisse donc jamais de fichier
+ * tronqué sous le nom final ; seul un temporaire, supprimé à la reprise.
+ */
+final class AtomicOutput implements Closeable {
+
+    private static final String SUFFIX = ".part";
+
+    private final File target;
+    private final Path temp;
+    private final FileChannel channel;
+    private boolean committed;
+
+    private AtomicOutput(File target, Path temp, FileChannel channel) {
+        this.target = target;
+        this.temp = temp;
+        this.channel = channel;
+    }
+
+    /**
+     * Ouvre un temporaire dans le dossier de {@code target}. Avec une longueur
+     * finale connue, le fichier reçoit d'emblée sa taille définitive : il n'est
+     * plus agrandi écriture après écriture, et les systèmes qui allouent à
+     * l'extension (NTFS notamment) le réservent d'un seul tenant, sans remplissage.
+     */
+    static AtomicOutput create(File target, long expectedLength) throws IOException {
+        Path temp = Files.createFile(siblingTemp(target));
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(temp.toFile(), "rw");
+            if (expectedLength > 0) {
+                file.setLength(expectedLength);
+            }
+        } catch (IOException e) {
+            if (file != null) file.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new AtomicOutput(target, temp, file.getChannel());
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /** Coupe ce qui dépasse la position courante, synchronise et remplace la destination. */
+    void commit() throws IOException {
+        channel.truncate(channel.position());
+        channel.force(false);
+        channel.close();
+        replace(temp, target);
+        committed = true;
+    }
+
+    /** Sans {@link #commit()} préalable, le temporaire est abandonné. */
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+        channel.close();
+        Files.deleteIfExists(temp);
+    }
+
+    // ==================== NOMS ====================
+
+    /** Nom temporaire unique, caché, dans le même dossier (et donc le même volume) que {@code target}. */
+    static Path siblingTemp(File target) {
+        String name = "." + target.getName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + SUFFIX;
+        return new File(target.getAbsoluteFile().getParentFile(), name).toPath();
+    }
+
+    /** Renomme {@code temp} en {@code target}, atomiquement si le système le permet. */
+    static void replace(Path temp, File target) throws IOException {
+        try {
+            Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Temporaires laissés par un arrêt brutal pendant l'écriture de {@code target}. */
+    static List<File> leftovers(File target) {
+        List<File> found = new ArrayList<>();
+        String prefix = "." + target.getName() + ".";
+        File[] files = target.getAbsoluteFile().getParentFile().listFiles(
+                (dir, name) -> name.startsWith(prefix) && name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) found.add(file);
+        }
+        return found;
+    }
+}
@@ -7,13 +7,11 @@ import javax.swing.plaf.basic.BasicSplitPaneDivider;
 import javax.swing.plaf.basic.BasicSplitPaneUI;
 import java.awt.*;
 import java.io.File;
-import java.text.DecimalFormat;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.sound.sampled.*;
 
 public class AudioConverter extends JFrame {
@@ -45,13 +43,15 @@ public class AudioConverter extends JFrame {
     private JPanel headerPanel;
     private JPanel footerPanel;
 
-    private DefaultListModel<AudioFile> fileListModel;
+    private AudioFileListModel fileListModel;
     private JList<AudioFile> fileList;
     private JComboBox<String> formatComboBox;
     private JComboBox<String> qualityComboBox;
     private JComboBox<String> sampleRateComboBox;
     private JComboBox<String> channelsComboBox;
     private JSlider volumeSlider;
+    private JCheckBox normalizeCheck;
+    private JLabel extraTargetsLabel;
     private JProgressBar globalProgressBar;
     private JLabel statusLabel;
     private JLabel fileCountLabel;
@@ -59,25 +59,40 @@ public class AudioConverter extends JFrame {
     private JButton addFilesButton;
     private JButton removeFilesButton;
     private JButton clearAllButton;
+    private JButton watchButton;
     private JButton convertButton;
     private JButton stopButton;
     private JButton settingsButton;
 
     // ==================== VARIABLES D'ÉTAT ====================
-    private List<AudioFile> audioFiles;
-    private ExecutorService executorService;
+    private ConversionEngine engine;
+    private ConversionLog conversionLog;
+    private FileIngest fileIngest;
     private volatile boolean isConverting = false;
     private File outputDirectory;
     private ConversionSettings settings;
     private ConversionStatistics statistics;
+    private JobChangeBatch jobChanges;
+    private WatchFolder watchFolder;
+    // Fichiers du dossier surveillé encore affichés, du plus ancien au plus récent (EDT)
+    private final ArrayDeque<AudioFile> watchHistory = new ArrayDeque<>();
+    // Profils ajoutés à la cible courante (format, taux, bits, canaux) : un seul décodage par fichier
+    private final List<ConversionPreset> extraTargets = new ArrayList<>();
+
+    // Journal affiché : vidé 20 fois par seconde, limité aux dernières lignes
+    private static final int LOG_REFRESH_MS = 50;
+    private static final int MAX_LOG_LINES = 2000;
+    // Dossier surveillé : au-delà, les plus anciens fichiers terminés quittent la liste
+    private static final int WATCH_HISTORY = 1000;
+
+    // Métriques vivantes : débits calculés sur la dernière seconde
+    private static final int METRICS_REFRESH_MS = 1000;
+    private static final int METRICS_PORT = 9464;
+    private MetricsExporter metricsExporter;
 
     // ==================== FORMATS SUPPORTÉS ====================
-    private static final String[] SUPPORTED_INPUT_FORMATS = {
-            "wav", "aiff", "au"
-    };
-
     private static final String[] OUTPUT_FORMATS = {
-            "WAV", "AIFF", "AU"
+            "WAV", "W64", "AIFF", "AU"
     };
 
     private static final String[] QUALITY_PRESETS = {
@@ -99,21 +114,48 @@ public class AudioConverter extends JFrame {
         applyModernLookAndFeel();
         initializeUI();
         setupEventHandlers();
+        new javax.swing.Timer(LOG_REFRESH_MS, e -> drainLog()).start();
+        new javax.swing.Timer(METRICS_REFRESH_MS, e -> refreshMetrics()).start();
+        SwingUtilities.invokeLater(this::offerResume); // Une fois la fenêtre affichée
     }
 
     private void initializeVariables() {
-        audioFiles = new ArrayList<>();
-        fileListModel = new DefaultListModel<>();
-        executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        fileListModel = new AudioFileListModel();
         outputDirectory = new File(System.getProperty("user.home"), "AudioConverter_Output");
         settings = new ConversionSettings();
         statistics = new ConversionStatistics();
+        jobChanges = new JobChangeBatch(SwingUtilities::invokeLater, changed -> {
+            repaintRows(changed);
+            if (watchFolder != null) updateStatistics(); // Pas de fin de lot pour les recalculer
+        });
+        conversionLog = new ConversionLog(outputDirectory);
+        engine = new ConversionEngine(settings.threadCount, settings.maxExternalProcesses, this::log);
+        engine.getPool().setAutoTuning(settings.autoThreadCount);
+        fileIngest = new FileIngest(engine);
+        applyCacheSettings();
 
         if (!outputDirectory.exists()) {
             outputDirectory.mkdirs();
         }
     }
 
+    /** Ouvre, redimensionne ou désactive le cache des conversions selon les réglages. */
+    private void applyCacheSettings() {
+        long maxBytes = settings.cacheMaxGigabytes * 1024L * 1024 * 1024;
+        ConversionCache cache = engine.getCache();
+        if (!settings.cacheEnabled) {
+            engine.setCache(null);
+        } else if (cache != null) {
+            cache.setMaxBytes(maxBytes);
+        } else {
+            try {
+                engine.setCache(new ConversionCache(ConversionCache.DEFAULT_DIRECTORY, maxBytes));
+            } catch (IOException e) {
+                log("Cache des conversions indisponible : " + e.getMessage());
+            }
+        }
+    }
+
     private void initializeUI() {
         setTitle("AudioConverter Pro 2025 - Elite Edition");
         setSize(1400, 900);
@@ -204,6 +246,11 @@ public class AudioConverter extends JFrame {
         clearAllButton = createModernButton("Vider la liste", ERROR_COLOR, true);
         clearAllButton.setAlignmentX(Component.LEFT_ALIGNMENT);
         sidebarPanel.add(clearAllButton);
+        sidebarPanel.add(Box.createVerticalStrut(10));
+
+        watchButton = createModernButton("Surveiller un dossier...", PRIMARY_COLOR, true);
+        watchButton.setAlignmentX(Component.LEFT_ALIGNMENT);
+        sidebarPanel.add(watchButton);
 
         sidebarPanel.add(Box.createVerticalStrut(30));
         sidebarPanel.add(createSeparator());
@@ -262,6 +309,34 @@ public class AudioConverter extends JFrame {
         volumeSlider.setLabelTable(labelTable);
 
         sidebarPanel.add(volumeSlider);
+        sidebarPanel.add(Box.createVerticalStrut(8));
+
+        // Gain calculé par fichier à partir de sa sonie mesurée : le curseur ne sert plus
+        normalizeCheck = new JCheckBox("Normaliser à " + Math.round(LoudnessMeter.DEFAULT_TARGET_LUFS) + " LUFS");
+        normalizeCheck.setOpaque(false);
+        normalizeCheck.setFont(FONT_LABEL);
+        normalizeCheck.setForeground(TEXT_SECONDARY);
+        normalizeCheck.setAlignmentX(Component.LEFT_ALIGNMENT);
+        sidebarPanel.add(normalizeCheck);
+        sidebarPanel.add(Box.createVerticalStrut(15));
+
+        sidebarPanel.add(createLabel("Cibles supplémentaires :"));
+        sidebarPanel.add(Box.createVerticalStrut(8));
+        extraTargetsLabel = createLabel("Aucune");
+        extraTargetsLabel.setFont(FONT_SMALL);
+        sidebarPanel.add(extraTargetsLabel);
+        sidebarPanel.add(Box.createVerticalStrut(8));
+
+        JPanel targetButtons = new JPanel(new GridLayout(1, 2, 8, 0));
+        targetButtons.setOpaque(false);
+        targetButtons.setAlignmentX(Component.LEFT_ALIGNMENT);
+        JButton addTargetButton = createModernButton("+ Ajouter cette cible", PRIMARY_COLOR, true);
+        JButton clearTargetsButton = createModernButton("Effacer", BACKGROUND_LIGHT, true);
+        addTargetButton.addActionListener(e -> addExtraTarget());
+        clearTargetsButton.addActionListener(e -> clearExtraTargets());
+        targetButtons.add(addTargetButton);
+        targetButtons.add(clearTargetsButton);
+        sidebarPanel.add(targetButtons);
 
         sidebarPanel.add(Box.createVerticalStrut(30));
         sidebarPanel.add(createSeparator());
@@ -303,6 +378,8 @@ public class AudioConverter extends JFrame {
         fileList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         fileList.setCellRenderer(new AudioFileCellRenderer());
         fileList.setFixedCellHeight(80);
+        // Largeur réelle = celle de la liste : aucune ligne n'est mesurée quand le modèle change
+        fileList.setFixedCellWidth(300);
 
         JScrollPane fileScrollPane = new JScrollPane(fileList);
         fileScrollPane.setBorder(createModernBorder());
@@ -498,7 +575,7 @@ public class AudioConverter extends JFrame {
     }
 
     private JPanel createStatsPanel() {
-        JPanel panel = new JPanel(new GridLayout(4, 2, 10, 10));
+        JPanel panel = new JPanel(new GridLayout(9, 2, 10, 10));
         panel.setOpaque(false);
         panel.setBorder(BorderFactory.createCompoundBorder(
                 createModernBorder(),
@@ -523,6 +600,26 @@ public class AudioConverter extends JFrame {
         statistics.totalSizeLabel = createLabel("0 MB");
         panel.add(statistics.totalSizeLabel);
 
+        panel.add(createLabel("Cache (succès / échecs) :"));
+        statistics.cacheLabel = createLabel("0 / 0");
+        panel.add(statistics.cacheLabel);
+
+        panel.add(createLabel("Débit :"));
+        statistics.throughputLabel = createLabel("-");
+        panel.add(statistics.throughputLabel);
+
+        panel.add(createLabel("Lecture / écriture :"));
+        statistics.ioLabel = createLabel("-");
+        panel.add(statistics.ioLabel);
+
+        panel.add(createLabel("Workers / en attente :"));
+        statistics.workersLabel = createLabel("0 / 0");
+        panel.add(statistics.workersLabel);
+
+        panel.add(createLabel("p99 déc. / trait. / enc. / écr. :"));
+        statistics.latencyLabel = createLabel("-");
+        panel.add(statistics.latencyLabel);
+
         return panel;
     }
 
@@ -534,57 +631,66 @@ public class AudioConverter extends JFrame {
         clearAllButton.addActionListener(e -> clearAllFiles());
         convertButton.addActionListener(e -> startConversion());
         stopButton.addActionListener(e -> stopConversion());
-
-        new FileDrop(fileList, files -> {
-            for (File file : files) {
-                if (isAudioFile(file)) {
-                    addAudioFile(file);
-                }
-            }
-            updateFileCount();
+        watchButton.addActionListener(e -> toggleWatchFolder());
+
+        // Le dossier surveillé suit les réglages de la barre latérale
+        formatComboBox.addActionListener(e -> updateWatchPreset());
+        qualityComboBox.addActionListener(e -> updateWatchPreset());
+        sampleRateComboBox.addActionListener(e -> updateWatchPreset());
+        channelsComboBox.addActionListener(e -> updateWatchPreset());
+        volumeSlider.addChangeListener(e -> {
+            if (!volumeSlider.getValueIsAdjusting()) updateWatchPreset();
+        });
+        normalizeCheck.addActionListener(e -> {
+            volumeSlider.setEnabled(!normalizeCheck.isSelected());
+            updateWatchPreset();
         });
+
+        new FileDrop(fileList, files -> ingestFiles(Arrays.asList(files)));
     }
 
     private void addFiles() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        String[] inputFormats = engine.getSupportedInputFormats();
         fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
-                "Fichiers audio (" + String.join(", ", SUPPORTED_INPUT_FORMATS) + ")",
-                SUPPORTED_INPUT_FORMATS
+                "Fichiers audio (" + String.join(", ", inputFormats) + ")",
+                inputFormats
         ));
 
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File[] selectedFiles = fileChooser.getSelectedFiles();
-            for (File file : selectedFiles) {
-                addAudioFile(file);
-            }
-            updateFileCount();
-            log("Ajout de " + selectedFiles.length + " fichier(s).");
+            ingestFiles(Arrays.asList(fileChooser.getSelectedFiles()));
         }
     }
 
-    private void addAudioFile(File file) {
-        AudioFile audioFile = new AudioFile(file);
-        audioFiles.add(audioFile);
-        fileListModel.addElement(audioFile);
+    /** Parcours et lecture des en-têtes en arrière-plan ; la liste est complétée par lots. */
+    private void ingestFiles(List<File> files) {
+        log("Analyse de " + files.size() + " élément(s) déposé(s)...");
+        fileIngest.submit(files,
+                batch -> SwingUtilities.invokeLater(() -> addAudioFiles(batch)),
+                added -> SwingUtilities.invokeLater(() -> log("Ajout de " + added + " fichier(s).")));
+    }
+
+    private void addAudioFiles(List<AudioFile> batch) {
+        fileListModel.addAll(batch); // Un seul événement pour tout le lot
+        updateFileCount();
     }
 
     private void removeSelectedFiles() {
-        List<AudioFile> selectedFiles = fileList.getSelectedValuesList();
-        if (selectedFiles.isEmpty()) {
+        int[] selected = fileList.getSelectedIndices(); // Triés par ordre croissant
+        if (selected.length == 0) {
             showWarning("Aucun fichier sélectionné.");
             return;
         }
-        for (AudioFile file : selectedFiles) {
-            audioFiles.remove(file);
-            fileListModel.removeElement(file);
-        }
+        fileList.clearSelection();
+        fileListModel.removeIndices(selected);
         updateFileCount();
-        log("Suppression de " + selectedFiles.size() + " fichier(s).");
+        log("Suppression de " + selected.length + " fichier(s).");
     }
 
     private void clearAllFiles() {
-        if (audioFiles.isEmpty()) return;
+        if (fileListModel.isEmpty()) return;
 
         int result = JOptionPane.showConfirmDialog(
                 this,
@@ -594,7 +700,6 @@ public class AudioConverter extends JFrame {
                 JOptionPane.QUESTION_MESSAGE
         );
         if (result == JOptionPane.YES_OPTION) {
-            audioFiles.clear();
             fileListModel.clear();
             updateFileCount();
             log("Tous les fichiers ont été effacés.");
@@ -602,14 +707,20 @@ public class AudioConverter extends JFrame {
     }
 
     private void startConversion() {
-        if (audioFiles.isEmpty()) {
+        if (fileListModel.isEmpty()) {
             showWarning("Aucun fichier à convertir.");
             return;
         }
+        // Paramètres figés sur l'EDT : les workers ne lisent jamais les composants Swing
+        startBatch(createTargetsFromUI(), Collections.emptyList());
+    }
+
+    private void startBatch(List<ConversionPreset> targets, List<BatchJournal.Entry> carriedOver) {
         if (isConverting) return;
 
         isConverting = true;
         convertButton.setEnabled(false);
+        watchButton.setEnabled(false);
         stopButton.setEnabled(true);
         addFilesButton.setEnabled(false);
         removeFilesButton.setEnabled(false);
@@ -617,69 +728,96 @@ public class AudioConverter extends JFrame {
 
         globalProgressBar.setValue(0);
         statusLabel.setText("Conversion en cours...");
-        log("Démarrage de la conversion de " + audioFiles.size() + " fichier(s).");
+        log("Démarrage de la conversion de " + fileListModel.getSize() + " fichier(s).");
+        if (targets.size() > 1) log("Cibles par fichier : " + targets.size() + " (décodage unique)");
 
-        SwingWorker<Void, ConversionProgress> worker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() {
-                int total = audioFiles.size();
-                int completed = 0;
-                int success = 0;
-                int failed = 0;
+        List<AudioFile> jobs = fileListModel.snapshot();
 
-                for (AudioFile audioFile : audioFiles) {
-                    if (!isConverting) break;
-
-                    audioFile.status = AudioFileStatus.CONVERTING;
-                    fileList.repaint();
+        SwingWorker<Void, ConversionProgress> worker = new SwingWorker<>() {
+            private int lastCompleted = 0;
+            private String lastFileName = "";
+            // Relevé périodique des progressions : coût indépendant du nombre de blocs traités
+            private final javax.swing.Timer progressTimer = new javax.swing.Timer(100, e -> refreshProgress());
 
-                    publish(new ConversionProgress(completed, total, audioFile.file.getName(), 0));
+            {
+                progressTimer.start(); // Construit sur l'EDT, arrêté dans done()
+            }
 
-                    boolean result = convertAudioFile(audioFile);
+            @Override
+            protected Void doInBackground() {
+                int total = jobs.size();
+                ConversionEngine.BatchResult result = engine.runBatch(jobs, targets, carriedOver, new ConversionEngine.Listener() {
+                    @Override
+                    public void jobStarted(AudioFile audioFile) {
+                        jobChanges.mark(audioFile);
+                        publish(new ConversionProgress(-1, total, audioFile.name, 0));
+                    }
 
-                    if (result) {
-                        audioFile.status = AudioFileStatus.COMPLETED;
-                        success++;
-                    } else {
-                        audioFile.status = AudioFileStatus.FAILED;
-                        failed++;
+                    @Override
+                    public void jobFinished(AudioFile audioFile, boolean success, int completed, int count) {
+                        if (audioFile != null) {
+                            statistics.outputBytes.addAndGet(audioFile.state().outputBytes);
+                            jobChanges.mark(audioFile);
+                        }
+                        publish(new ConversionProgress(completed, count, null, 100));
                     }
 
-                    completed++;
-                    publish(new ConversionProgress(completed, total, audioFile.file.getName(), 100));
-                    fileList.repaint();
-                }
+                    @Override
+                    public void jobCancelled(AudioFile audioFile) {
+                        jobChanges.mark(audioFile);
+                    }
+                });
 
-                statistics.totalConverted += completed;
-                statistics.successCount += success;
-                statistics.failedCount += failed;
+                statistics.totalConverted.addAndGet(result.completed);
+                statistics.successCount.addAndGet(result.success);
+                statistics.failedCount.addAndGet(result.failed);
                 return null;
             }
 
             @Override
             protected void process(List<ConversionProgress> chunks) {
-                ConversionProgress latest = chunks.get(chunks.size() - 1);
-                int progress = (int) ((latest.completed * 100.0) / latest.total);
-                globalProgressBar.setValue(progress);
+                for (ConversionProgress chunk : chunks) {
+                    if (chunk.completed >= 0) lastCompleted = chunk.completed;
+                    if (chunk.fileName != null) lastFileName = chunk.fileName;
+                }
+                int total = chunks.get(chunks.size() - 1).total;
                 statusLabel.setText(String.format(
                         "Conversion : %d/%d - %s",
-                        latest.completed, latest.total, latest.fileName));
+                        lastCompleted, total, lastFileName));
+                refreshProgress();
+            }
+
+            private void refreshProgress() {
+                double partial = 0;
+                for (AudioFile active : engine.getActiveJobs()) {
+                    partial += Math.max(0, active.progress.fraction());
+                    refreshActiveRow(active);
+                }
+                globalProgressBar.setValue((int) ((lastCompleted + partial) * 100.0 / jobs.size()));
             }
 
             @Override
             protected void done() {
+                progressTimer.stop();
+                refreshProgress();
                 isConverting = false;
                 convertButton.setEnabled(true);
+                watchButton.setEnabled(true);
                 stopButton.setEnabled(false);
                 addFilesButton.setEnabled(true);
                 removeFilesButton.setEnabled(true);
                 clearAllButton.setEnabled(true);
 
+                updateStatistics();
+                if (engine.isStopRequested()) {
+                    statusLabel.setText("Conversion arrêtée.");
+                    return;
+                }
+
                 globalProgressBar.setValue(100);
                 statusLabel.setText("Conversion terminée.");
                 log("Conversion terminée. Fichiers sauvegardés dans : " + outputDirectory.getAbsolutePath());
 
-                updateStatistics();
                 showSuccess("Conversion terminée avec succès.\n\nFichiers sauvegardés dans :\n" +
                         outputDirectory.getAbsolutePath());
             }
@@ -688,84 +826,183 @@ public class AudioConverter extends JFrame {
         worker.execute();
     }
 
-    private boolean convertAudioFile(AudioFile audioFile) {
-        AudioInputStream sourceStream = null;
-        AudioInputStream convertedStream = null;
-        
+    // ==================== DOSSIER SURVEILLÉ ====================
+
+    /**
+     * Démarre ou arrête la surveillance d'un dossier. Pendant la surveillance,
+     * les lots manuels sont désactivés : un arrêt de lot interromprait aussi
+     * les fichiers du dossier.
+     */
+    private void toggleWatchFolder() {
+        if (watchFolder != null) {
+            watchFolder.close();
+            log("Surveillance arrêtée : " + watchFolder.getDirectory());
+            watchFolder = null;
+            watchButton.setText("Surveiller un dossier...");
+            convertButton.setEnabled(true);
+            statusLabel.setText("Prêt à convertir");
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Dossier à surveiller");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        WatchFolder.Listener listener = new WatchFolder.Listener() {
+            @Override
+            public void jobQueued(AudioFile audioFile) {
+                SwingUtilities.invokeLater(() -> addWatchedFile(audioFile));
+            }
+
+            @Override
+            public void jobStarted(AudioFile audioFile) {
+                jobChanges.mark(audioFile);
+            }
+
+            @Override
+            public void jobFinished(AudioFile audioFile, boolean success, int completed, int total) {
+                statistics.totalConverted.incrementAndGet();
+                (success ? statistics.successCount : statistics.failedCount).incrementAndGet();
+                statistics.outputBytes.addAndGet(audioFile.state().outputBytes);
+                jobChanges.mark(audioFile);
+            }
+
+            @Override
+            public void jobCancelled(AudioFile audioFile) {
+                jobChanges.mark(audioFile);
+            }
+        };
         try {
-            log("Conversion du fichier : " + audioFile.file.getName());
-
-            // Lecture du fichier source
-            sourceStream = AudioSystem.getAudioInputStream(audioFile.file);
-            AudioFormat sourceFormat = sourceStream.getFormat();
-
-            // Paramètres de conversion
-            String outputFormat = Objects.requireNonNull(formatComboBox.getSelectedItem()).toString();
-            float sampleRate = getSampleRate();
-            int channels = getChannels(sourceFormat);
-            int sampleSizeInBits = getSampleSize();
-
-            // Création du format cible
-            AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    sampleRate,
-                    sampleSizeInBits,
-                    channels,
-                    channels * (sampleSizeInBits / 8),
-                    sampleRate,
-                    false
-            );
-
-            log("Format source : " + sourceFormat.toString());
-            log("Format cible : " + targetFormat.toString());
-
-            // Vérifier si la conversion est supportée
-            if (!AudioSystem.isConversionSupported(targetFormat, sourceFormat)) {
-                log("Conversion directe non supportée, tentative de conversion en deux étapes...");
-                
-                // Conversion en deux étapes : source -> PCM standard -> cible
-                AudioFormat intermediateFormat = new AudioFormat(
-                        AudioFormat.Encoding.PCM_SIGNED,
-                        sourceFormat.getSampleRate(),
-                        16,
-                        sourceFormat.getChannels(),
-                        sourceFormat.getChannels() * 2,
-                        sourceFormat.getSampleRate(),
-                        false
-                );
-                
-                AudioInputStream intermediateStream = AudioSystem.getAudioInputStream(intermediateFormat, sourceStream);
-                convertedStream = AudioSystem.getAudioInputStream(targetFormat, intermediateStream);
-            } else {
-                convertedStream = AudioSystem.getAudioInputStream(targetFormat, sourceStream);
+            watchFolder = new WatchFolder(engine, chooser.getSelectedFile(), createTargetsFromUI(),
+                    engine.getPool().getParallelism() * 2, listener, this::log);
+        } catch (IOException e) {
+            showWarning("Surveillance impossible :\n" + e.getMessage());
+            return;
+        }
+        watchFolder.start();
+        watchButton.setText("Arrêter la surveillance");
+        convertButton.setEnabled(false);
+        statusLabel.setText("Surveillance de " + watchFolder.getDirectory().getFileName() + "...");
+    }
+
+    private void updateWatchPreset() {
+        if (watchFolder != null) watchFolder.setTargets(createTargetsFromUI());
+    }
+
+    // ==================== CIBLES ====================
+
+    /** Ajoute le profil affiché (format, qualité, taux, canaux) aux cibles de chaque fichier. */
+    private void addExtraTarget() {
+        ConversionPreset target = createPresetFromUI();
+        for (ConversionPreset existing : extraTargets) {
+            if (existing.outputFormat.equals(target.outputFormat) && existing.sampleRate == target.sampleRate
+                    && existing.sampleSizeInBits == target.sampleSizeInBits
+                    && existing.channelOption == target.channelOption) {
+                return;
             }
+        }
+        extraTargets.add(target);
+        updateExtraTargets();
+        log("Cible ajoutée : " + describeTarget(target));
+    }
 
-            // Nom et type du fichier de sortie
-            String outputFileName = getOutputFileName(audioFile.file, outputFormat);
-            File outputFile = new File(outputDirectory, outputFileName);
+    private void clearExtraTargets() {
+        if (extraTargets.isEmpty()) return;
+        extraTargets.clear();
+        updateExtraTargets();
+        log("Cibles supplémentaires effacées.");
+    }
 
-            AudioFileFormat.Type fileType = getAudioFileType(outputFormat);
-            
-            // Écriture du fichier
-            AudioSystem.write(convertedStream, fileType, outputFile);
+    private void updateExtraTargets() {
+        StringBuilder text = new StringBuilder();
+        for (ConversionPreset target : extraTargets) {
+            text.append(text.length() == 0 ? "<html>" : "<br>").append(describeTarget(target));
+        }
+        extraTargetsLabel.setText(text.length() == 0 ? "Aucune" : text.append("</html>").toString());
+        updateWatchPreset();
+    }
 
-            audioFile.outputFile = outputFile;
-            log("Succès : " + outputFileName + " (" + formatFileSize(outputFile.length()) + ")");
-            return true;
+    private static String describeTarget(ConversionPreset target) {
+        return target.outputFormat + " " + Math.round(target.sampleRate) + " Hz " + target.sampleSizeInBits
+                + " bits " + CHANNEL_OPTIONS[target.channelOption].toLowerCase();
+    }
 
-        } catch (Exception e) {
-            log("Erreur sur " + audioFile.file.getName() + " : " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        } finally {
-            // Fermeture propre des streams
-            try {
-                if (convertedStream != null) convertedStream.close();
-                if (sourceStream != null) sourceStream.close();
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * Cible affichée puis profils ajoutés ; volume ou normalisation, limiteur,
+     * qualité de rééchantillonnage et dossier de sortie sont les réglages courants.
+     */
+    private List<ConversionPreset> createTargetsFromUI() {
+        ConversionPreset current = createPresetFromUI();
+        List<ConversionPreset> targets = new ArrayList<>();
+        targets.add(current);
+        for (ConversionPreset extra : extraTargets) {
+            targets.add(new ConversionPreset(extra.outputFormat, extra.sampleRate, extra.sampleSizeInBits,
+                    extra.channelOption, current.gain, current.softLimit, current.resamplerQuality,
+                    current.outputDirectory, "", current.loudnessTarget));
+        }
+        return ConversionPreset.distinctTargets(targets);
+    }
+
+    /** Sur l'EDT : ajoute le fichier et retire les plus anciens terminés pour borner la liste. */
+    private void addWatchedFile(AudioFile audioFile) {
+        fileListModel.addAll(Collections.singletonList(audioFile));
+        watchHistory.addLast(audioFile);
+        if (watchHistory.size() > WATCH_HISTORY) {
+            List<Integer> indices = new ArrayList<>();
+            while (watchHistory.size() > WATCH_HISTORY
+                    && watchHistory.peekFirst().status() != AudioFileStatus.CONVERTING) {
+                int index = fileListModel.indexOf(watchHistory.pollFirst());
+                if (index >= 0) indices.add(index);
+            }
+            if (!indices.isEmpty()) {
+                fileList.clearSelection();
+                fileListModel.removeIndices(indices.stream().mapToInt(Integer::intValue).sorted().toArray());
             }
         }
+        updateFileCount();
+    }
+
+    // ==================== REPRISE ====================
+
+    /** Propose de reprendre le lot interrompu trouvé dans le dossier de sortie. */
+    private void offerResume() {
+        BatchJournal.Recovery recovery;
+        try {
+            recovery = BatchJournal.recover(outputDirectory);
+        } catch (IOException e) {
+            log("Journal de reprise illisible : " + e.getMessage());
+            return;
+        }
+        if (recovery == null) return;
+
+        int result = JOptionPane.showConfirmDialog(
+                this,
+                "Un lot interrompu a été trouvé dans :\n" + outputDirectory.getAbsolutePath() + "\n\n"
+                        + recovery.completed.size() + " fichier(s) déjà converti(s), "
+                        + recovery.pending.size() + " à reprendre (dont "
+                        + recovery.partialOutputs.size() + " partiellement écrit(s)).\n\n"
+                        + "Reprendre la conversion avec ses paramètres d'origine ?",
+                "Reprise",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.QUESTION_MESSAGE
+        );
+        try {
+            if (result != JOptionPane.YES_OPTION || recovery.pending.isEmpty()) {
+                BatchJournal.discard(outputDirectory);
+                if (result != JOptionPane.YES_OPTION) log("Lot interrompu abandonné.");
+                return;
+            }
+            recovery.deletePartialOutputs();
+        } catch (IOException e) {
+            log("Reprise impossible : " + e.getMessage());
+            return;
+        }
+
+        log("Reprise du lot : " + recovery.completed.size() + " fichier(s) déjà converti(s) ignoré(s).");
+        fileIngest.submit(recovery.pending,
+                batch -> SwingUtilities.invokeLater(() -> addAudioFiles(batch)),
+                added -> SwingUtilities.invokeLater(() -> startBatch(recovery.targets, recovery.completed)));
     }
 
     private void stopConversion() {
@@ -778,32 +1015,34 @@ public class AudioConverter extends JFrame {
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.WARNING_MESSAGE
         );
-        if (result == JOptionPane.YES_OPTION) {
-            isConverting = false;
+        if (result == JOptionPane.YES_OPTION && isConverting) {
+            // Les conversions en cours s'interrompent au prochain bloc ; done() rétablit les boutons
+            engine.requestStop();
+            stopButton.setEnabled(false);
+            statusLabel.setText("Arrêt en cours...");
             log("Conversion arrêtée par l'utilisateur.");
         }
     }
 
     // ==================== UTILITAIRES ====================
 
-    private boolean isAudioFile(File file) {
-        String name = file.getName().toLowerCase();
-        for (String ext : SUPPORTED_INPUT_FORMATS) {
-            if (name.endsWith("." + ext)) return true;
-        }
-        return false;
-    }
-
     private float getSampleRate() {
         String selected = Objects.requireNonNull(sampleRateComboBox.getSelectedItem()).toString();
         return Float.parseFloat(selected.split(" ")[0]);
     }
 
-    private int getChannels(AudioFormat sourceFormat) {
-        int selected = channelsComboBox.getSelectedIndex();
-        if (selected == 0) return 1; // Mono
-        if (selected == 1) return 2; // Stéréo
-        return sourceFormat.getChannels(); // Original
+    private ConversionPreset createPresetFromUI() {
+        ConversionPreset preset = new ConversionPreset(
+                Objects.requireNonNull(formatComboBox.getSelectedItem()).toString(),
+                getSampleRate(),
+                getSampleSize(),
+                channelsComboBox.getSelectedIndex(),
+                volumeSlider.getValue() / 100f,
+                settings.softLimit,
+                settings.resamplerQuality,
+                outputDirectory
+        );
+        return normalizeCheck.isSelected() ? preset.withLoudnessTarget(LoudnessMeter.DEFAULT_TARGET_LUFS) : preset;
     }
 
     private int getSampleSize() {
@@ -817,55 +1056,143 @@ public class AudioConverter extends JFrame {
         }
     }
 
-    private String getOutputFileName(File inputFile, String format) {
-        String baseName = inputFile.getName();
-        int dotIndex = baseName.lastIndexOf('.');
-        if (dotIndex > 0) baseName = baseName.substring(0, dotIndex);
-        return baseName + "_converted." + format.toLowerCase();
+    /** Prépare le texte d'avancement d'une conversion, une fois par relevé, puis redessine sa ligne. */
+    private void refreshActiveRow(AudioFile audioFile) {
+        JobProgress progress = audioFile.progress;
+        if (progress.isStarted()) {
+            StringBuilder text = new StringBuilder(audioFile.description());
+            text.append("  •  ").append(TextFormats.formatFileSize(progress.processedBytes())).append(" lus");
+            double eta = progress.etaSeconds();
+            if (eta >= 0) {
+                text.append("  •  reste ").append(TextFormats.formatDuration(eta));
+            }
+            double realtime = progress.realtimeFactor();
+            if (realtime > 0) {
+                text.append(String.format("  •  %.1f×RT", realtime));
+            }
+            progress.setLabel(text.toString());
+        }
+        repaintRow(audioFile); // Bandeau de progression
+    }
+
+    /** Ne repeint que la ligne du fichier ; rien s'il a quitté la liste ou n'est pas visible. */
+    private void repaintRow(AudioFile audioFile) {
+        int index = fileListModel.indexOf(audioFile);
+        if (index < 0) return;
+        Rectangle bounds = fileList.getCellBounds(index, index);
+        if (bounds != null && bounds.intersects(fileList.getVisibleRect())) {
+            fileList.repaint(bounds);
+        }
     }
 
-    private AudioFileFormat.Type getAudioFileType(String format) {
-        switch (format.toUpperCase()) {
-            case "WAV":
-                return AudioFileFormat.Type.WAVE;
-            case "AIFF":
-                return AudioFileFormat.Type.AIFF;
-            case "AU":
-                return AudioFileFormat.Type.AU;
-            default:
-                return AudioFileFormat.Type.WAVE;
+    /** Changements d'état regroupés : une seule zone repeinte couvrant les lignes visibles touchées. */
+    private void repaintRows(List<AudioFile> changed) {
+        Rectangle visible = fileList.getVisibleRect();
+        Rectangle dirty = null;
+        for (AudioFile audioFile : changed) {
+            int index = fileListModel.indexOf(audioFile);
+            if (index < 0) continue;
+            Rectangle bounds = fileList.getCellBounds(index, index);
+            if (bounds == null || !bounds.intersects(visible)) continue;
+            dirty = dirty == null ? bounds : dirty.union(bounds);
         }
+        if (dirty != null) fileList.repaint(dirty);
     }
 
     private void updateFileCount() {
-        fileCountLabel.setText(audioFiles.size() + " fichier(s)");
+        fileCountLabel.setText(fileListModel.getSize() + " fichier(s)");
     }
 
     private void updateStatistics() {
-        statistics.totalConvertedLabel.setText(String.valueOf(statistics.totalConverted));
-        statistics.successLabel.setText(String.valueOf(statistics.successCount));
-        statistics.failedLabel.setText(String.valueOf(statistics.failedCount));
+        statistics.totalConvertedLabel.setText(String.valueOf(statistics.totalConverted.get()));
+        statistics.successLabel.setText(String.valueOf(statistics.successCount.get()));
+        statistics.failedLabel.setText(String.valueOf(statistics.failedCount.get()));
 
-        long totalSize = audioFiles.stream()
-                .filter(f -> f.outputFile != null)
-                .mapToLong(f -> f.outputFile.length())
-                .sum();
+        statistics.totalSizeLabel.setText(TextFormats.formatFileSize(statistics.outputBytes.get()));
 
-        statistics.totalSizeLabel.setText(formatFileSize(totalSize));
+        ConversionCache cache = engine.getCache();
+        statistics.cacheLabel.setText(cache == null ? "désactivé"
+                : cache.getHits() + " / " + cache.getMisses());
+    }
+
+    /** Sur l'EDT, chaque seconde : débits et latences de la dernière seconde écoulée. */
+    private void refreshMetrics() {
+        if (watchFolder != null) { // Pas de relevé de lot : les lignes en cours suivent ce rythme-ci
+            for (AudioFile active : engine.getActiveJobs()) {
+                refreshActiveRow(active);
+            }
+        }
+        ConversionMetrics.Snapshot current = engine.getMetrics().snapshot();
+        ConversionMetrics.Snapshot previous = statistics.lastMetrics;
+        statistics.lastMetrics = current;
+        if (previous == null) return;
+
+        statistics.throughputLabel.setText(String.format("%,.0f trames/s (x%.1f)",
+                current.framesPerSecond(previous), current.realtimeFactor(previous)));
+        statistics.ioLabel.setText(TextFormats.formatFileSize((long) current.bytesReadPerSecond(previous)) + "/s / "
+                + TextFormats.formatFileSize((long) current.bytesWrittenPerSecond(previous)) + "/s");
+        statistics.workersLabel.setText(current.activeWorkers + " / " + current.queueDepth);
+
+        StringBuilder latency = new StringBuilder();
+        for (ConversionMetrics.Stage stage : ConversionMetrics.Stage.values()) {
+            LatencyHistogram.Snapshot window = current.stage(stage).since(previous.stage(stage));
+            if (latency.length() > 0) latency.append(" / ");
+            latency.append(window.count == 0 ? "-" : TextFormats.formatNanos(window.quantile(0.99)));
+        }
+        statistics.latencyLabel.setText(latency.toString());
     }
 
-    private String formatFileSize(long bytes) {
-        DecimalFormat df = new DecimalFormat("#.##");
-        if (bytes < 1024) return bytes + " B";
-        if (bytes < 1024L * 1024L) return df.format(bytes / 1024.0) + " KB";
-        if (bytes < 1024L * 1024L * 1024L) return df.format(bytes / (1024.0 * 1024.0)) + " MB";
-        return df.format(bytes / (1024.0 * 1024.0 * 1024.0)) + " GB";
+    /** Démarre ou arrête le serveur local de métriques selon les réglages. */
+    private void applyMetricsSettings() {
+        if (!settings.metricsServer) {
+            if (metricsExporter != null) {
+                metricsExporter.close();
+                metricsExporter = null;
+                log("Serveur de métriques arrêté");
+            }
+            return;
+        }
+        if (metricsExporter != null) return;
+        metricsExporter = new MetricsExporter(engine.getMetrics());
+        try {
+            int port = metricsExporter.serve(METRICS_PORT);
+            log("Métriques : http://127.0.0.1:" + port + "/metrics (Prometheus), /metrics.json");
+        } catch (IOException e) {
+            metricsExporter.close();
+            metricsExporter = null;
+            settings.metricsServer = false;
+            log("Serveur de métriques indisponible : " + e.getMessage());
+        }
     }
 
+    /** Appelable depuis n'importe quel thread : la ligne est affichée au prochain rafraîchissement. */
     private void log(String message) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-        logArea.append("[" + timestamp + "] " + message + "\n");
-        logArea.setCaretPosition(logArea.getDocument().getLength());
+        conversionLog.log(message);
+    }
+
+    /** Sur l'EDT : un seul ajout au document par rafraîchissement, puis coupe des lignes anciennes. */
+    private void drainLog() {
+        StringBuilder text = new StringBuilder();
+        conversionLog.display().drain(line -> text.append(line).append('\n'), Integer.MAX_VALUE);
+        long dropped = conversionLog.display().takeDropped();
+        if (dropped > 0) {
+            text.append("... ").append(dropped).append(" ligne(s) non affichée(s), voir ")
+                    .append(ConversionLog.FILE_NAME).append(".log\n");
+        }
+        if (text.length() == 0) return;
+
+        logArea.append(text.toString());
+        javax.swing.text.Document document = logArea.getDocument();
+        javax.swing.text.Element root = document.getDefaultRootElement();
+        int excess = root.getElementCount() - 1 - MAX_LOG_LINES; // Dernier élément : ligne vide
+        if (excess > 0) {
+            try {
+                document.remove(0, root.getElement(excess - 1).getEndOffset());
+            } catch (javax.swing.text.BadLocationException e) {
+                logArea.setText("");
+            }
+        }
+        logArea.setCaretPosition(document.getLength());
     }
 
     private void showWarning(String message) {
@@ -893,14 +1220,17 @@ public class AudioConverter extends JFrame {
                 "3. Cliquez sur CONVERTIR pour lancer la conversion.\n" +
                 "4. Les fichiers convertis sont sauvegardés dans :\n   " +
                 outputDirectory.getAbsolutePath() + "\n\n" +
-                "Formats supportés : WAV, AIFF, AU\n" +
-                "Note : Java Sound API supporte nativement ces formats.";
+                "Formats supportés : " + String.join(", ", engine.getSupportedInputFormats()).toUpperCase() + "\n" +
+                "Moteurs de décodage : " + engine.getBackends().stream()
+                        .map(ConversionBackend::getName)
+                        .reduce((a, b) -> a + ", " + b).orElse("") + "\n" +
+                "Note : installez ffmpeg pour lire MP3, FLAC, OGG, etc.";
         JOptionPane.showMessageDialog(this, message, "Aide", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void showSettingsDialog() {
         JDialog dialog = new JDialog(this, "Paramètres", true);
-        dialog.setSize(500, 400);
+        dialog.setSize(560, 650);
         dialog.setLocationRelativeTo(this);
 
         JPanel panel = new JPanel(new BorderLayout(20, 20));
@@ -910,7 +1240,7 @@ public class AudioConverter extends JFrame {
         JLabel title = createSectionTitle("Paramètres avancés");
         panel.add(title, BorderLayout.NORTH);
 
-        JPanel settingsPanel = new JPanel(new GridLayout(3, 2, 15, 15));
+        JPanel settingsPanel = new JPanel(new GridLayout(9, 2, 15, 15));
         settingsPanel.setOpaque(false);
 
         settingsPanel.add(createLabel("Dossier de sortie :"));
@@ -920,6 +1250,7 @@ public class AudioConverter extends JFrame {
             chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
             if (chooser.showOpenDialog(dialog) == JFileChooser.APPROVE_OPTION) {
                 outputDirectory = chooser.getSelectedFile();
+                conversionLog.setDirectory(outputDirectory);
                 log("Dossier de sortie changé : " + outputDirectory.getAbsolutePath());
             }
         });
@@ -927,10 +1258,80 @@ public class AudioConverter extends JFrame {
 
         settingsPanel.add(createLabel("Threads de conversion :"));
         JSpinner threadSpinner = new JSpinner(new SpinnerNumberModel(
-                Runtime.getRuntime().availableProcessors(), 1, 16, 1));
+                engine.getPool().getParallelism(), 1, ConversionPool.MAX_THREADS, 1));
         threadSpinner.setFont(FONT_LABEL);
+        threadSpinner.setEnabled(!settings.autoThreadCount);
+        // Appliqué immédiatement, y compris pendant une conversion : les fichiers en cours continuent
+        threadSpinner.addChangeListener(e -> {
+            settings.threadCount = (Integer) threadSpinner.getValue();
+            engine.getPool().setParallelism(settings.threadCount);
+        });
         settingsPanel.add(threadSpinner);
 
+        settingsPanel.add(createLabel("Threads automatiques (débit / disque) :"));
+        JCheckBox autoThreadsCheck = new JCheckBox();
+        autoThreadsCheck.setOpaque(false);
+        autoThreadsCheck.setSelected(settings.autoThreadCount);
+        autoThreadsCheck.addActionListener(e -> {
+            settings.autoThreadCount = autoThreadsCheck.isSelected();
+            threadSpinner.setEnabled(!settings.autoThreadCount);
+            if (!settings.autoThreadCount) {
+                engine.getPool().setParallelism(settings.threadCount);
+            }
+            engine.getPool().setAutoTuning(settings.autoThreadCount);
+            log("Threads de conversion : " + (settings.autoThreadCount
+                    ? "ajustement automatique" : settings.threadCount));
+        });
+        settingsPanel.add(autoThreadsCheck);
+
+        settingsPanel.add(createLabel("Qualité du rééchantillonnage :"));
+        JComboBox<ResamplerQuality> resamplerCombo = new JComboBox<>(ResamplerQuality.values());
+        resamplerCombo.setFont(FONT_LABEL);
+        resamplerCombo.setSelectedItem(settings.resamplerQuality);
+        resamplerCombo.addActionListener(e ->
+                settings.resamplerQuality = (ResamplerQuality) resamplerCombo.getSelectedItem());
+        settingsPanel.add(resamplerCombo);
+
+        settingsPanel.add(createLabel("Limiteur doux (volume > 100 %) :"));
+        JCheckBox softLimitCheck = new JCheckBox();
+        softLimitCheck.setOpaque(false);
+        softLimitCheck.setSelected(settings.softLimit);
+        softLimitCheck.addActionListener(e -> settings.softLimit = softLimitCheck.isSelected());
+        settingsPanel.add(softLimitCheck);
+
+        settingsPanel.add(createLabel("Cache des conversions :"));
+        JCheckBox cacheCheck = new JCheckBox();
+        cacheCheck.setOpaque(false);
+        cacheCheck.setSelected(settings.cacheEnabled);
+        settingsPanel.add(cacheCheck);
+
+        settingsPanel.add(createLabel("Taille max. du cache (Go) :"));
+        JSpinner cacheSizeSpinner = new JSpinner(new SpinnerNumberModel(settings.cacheMaxGigabytes, 1, 1024, 1));
+        cacheSizeSpinner.setFont(FONT_LABEL);
+        cacheSizeSpinner.setEnabled(settings.cacheEnabled);
+        cacheSizeSpinner.addChangeListener(e -> {
+            settings.cacheMaxGigabytes = (Integer) cacheSizeSpinner.getValue();
+            applyCacheSettings();
+        });
+        cacheCheck.addActionListener(e -> {
+            settings.cacheEnabled = cacheCheck.isSelected();
+            cacheSizeSpinner.setEnabled(settings.cacheEnabled);
+            applyCacheSettings();
+            updateStatistics();
+        });
+        settingsPanel.add(cacheSizeSpinner);
+
+        settingsPanel.add(createLabel("Serveur de métriques (127.0.0.1:" + METRICS_PORT + ") :"));
+        JCheckBox metricsCheck = new JCheckBox();
+        metricsCheck.setOpaque(false);
+        metricsCheck.setSelected(settings.metricsServer);
+        metricsCheck.addActionListener(e -> {
+            settings.metricsServer = metricsCheck.isSelected();
+            applyMetricsSettings();
+            metricsCheck.setSelected(settings.metricsServer);
+        });
+        settingsPanel.add(metricsCheck);
+
         settingsPanel.add(createLabel("Ouvrir le dossier après conversion :"));
         JCheckBox openFolderCheck = new JCheckBox();
         openFolderCheck.setOpaque(false);
@@ -963,39 +1364,34 @@ public class AudioConverter extends JFrame {
 
     // ==================== CLASSES INTERNES ====================
 
-    private static class AudioFile {
-        File file;
-        File outputFile;
-        AudioFileStatus status;
-
-        AudioFile(File file) {
-            this.file = file;
-            this.status = AudioFileStatus.PENDING;
-        }
-
-        @Override
-        public String toString() {
-            return file.getName();
-        }
-    }
-
-    private enum AudioFileStatus {
-        PENDING, CONVERTING, COMPLETED, FAILED
-    }
-
     private static class ConversionSettings {
         boolean openFolderAfterConversion = false;
         int threadCount = Runtime.getRuntime().availableProcessors();
+        boolean autoThreadCount = false;
+        ResamplerQuality resamplerQuality = ResamplerQuality.HIGH;
+        boolean softLimit = true;
+        int maxExternalProcesses = Runtime.getRuntime().availableProcessors();
+        boolean cacheEnabled = true;
+        int cacheMaxGigabytes = 10;
+        boolean metricsServer = false;
     }
 
+    /** Compteurs ajoutés par le thread du lot, lus sur l'EDT. */
     private static class ConversionStatistics {
-        int totalConverted = 0;
-        int successCount = 0;
-        int failedCount = 0;
+        final AtomicInteger totalConverted = new AtomicInteger();
+        final AtomicInteger successCount = new AtomicInteger();
+        final AtomicInteger failedCount = new AtomicInteger();
+        final AtomicLong outputBytes = new AtomicLong(); // Tenu à chaque fin de conversion
         JLabel totalConvertedLabel;
         JLabel successLabel;
         JLabel failedLabel;
         JLabel totalSizeLabel;
+        JLabel cacheLabel;
+        JLabel throughputLabel;
+        JLabel ioLabel;
+        JLabel workersLabel;
+        JLabel latencyLabel;
+        ConversionMetrics.Snapshot lastMetrics;
     }
 
     private static class ConversionProgress {
@@ -1014,10 +1410,20 @@ public class AudioConverter extends JFrame {
 
     // ==================== RENDERER ====================
 
+    // "En conversion... 0 %" à "100 %", construits une fois
+    private static final String[] PROGRESS_TEXT = new String[101];
+
+    static {
+        for (int i = 0; i < PROGRESS_TEXT.length; i++) {
+            PROGRESS_TEXT[i] = "En conversion... " + i + " %";
+        }
+    }
+
     private class AudioFileCellRenderer extends JPanel implements ListCellRenderer<AudioFile> {
         private JLabel nameLabel;
         private JLabel sizeLabel;
         private JLabel statusLabel;
+        private double paintedFraction = -1;
 
         AudioFileCellRenderer() {
             setLayout(new BorderLayout(15, 5));
@@ -1057,16 +1463,20 @@ public class AudioConverter extends JFrame {
                 boolean isSelected,
                 boolean cellHasFocus
         ) {
-            nameLabel.setText(value.file.getName());
-            sizeLabel.setText(formatFileSize(value.file.length()));
-
-            switch (value.status) {
+            // Textes préparés à l'ajout : ni appel disque ni mise en forme pendant le défilement
+            nameLabel.setText(value.name);
+            sizeLabel.setText(value.description());
+            paintedFraction = -1;
+
+            // Un seul instantané par rendu : statut et sortie toujours cohérents entre eux
+            AudioFile.State state = value.state();
+            switch (state.status) {
                 case PENDING:
                     statusLabel.setText("En attente");
                     statusLabel.setForeground(TEXT_SECONDARY);
                     break;
                 case CONVERTING:
-                    statusLabel.setText("En conversion...");
+                    statusLabel.setText(describeProgress(value.progress));
                     statusLabel.setForeground(PRIMARY_COLOR);
                     break;
                 case COMPLETED:
@@ -1079,6 +1489,12 @@ public class AudioConverter extends JFrame {
                     break;
             }
 
+            if (state.status == AudioFileStatus.CONVERTING) {
+                paintedFraction = value.progress.fraction();
+                String label = value.progress.label(); // Préparé par refreshActiveRow
+                if (label != null) sizeLabel.setText(label);
+            }
+
             if (isSelected) {
                 setBackground(PRIMARY_DARK);
                 nameLabel.setForeground(TEXT_PRIMARY);
@@ -1090,6 +1506,20 @@ public class AudioConverter extends JFrame {
             }
             return this;
         }
+
+        private String describeProgress(JobProgress progress) {
+            double fraction = progress.fraction();
+            return fraction < 0 ? "En conversion..." : PROGRESS_TEXT[(int) Math.round(fraction * 100)];
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (paintedFraction > 0) {
+                g.setColor(PRIMARY_COLOR);
+                g.fillRect(0, getHeight() - 4, (int) (getWidth() * paintedFraction), 3);
+            }
+        }
     }
 
     // ==================== UI PERSONNALISÉE ====================
@@ -1210,6 +1640,11 @@ public class AudioConverter extends JFrame {
     // ==================== MAIN ====================
 
     public static void main(String[] args) {
+        // Arguments ou serveur sans écran : la ligne de commande, sans ouvrir de fenêtre
+        if (args.length > 0 || GraphicsEnvironment.isHeadless()) {
+            AudioConverterCli.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             try {
                 AudioConverter app = new AudioConverter();
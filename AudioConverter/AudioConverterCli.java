@@ -0,0 +1,563 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Mode ligne de commande : mêmes options que la barre latérale, même moteur,
+ * sans charger AWT ni Swing (utilisable avec {@code java.awt.headless=true}).
+ *
+ * Codes de sortie : 0 tout a réussi, 1 au moins un échec, 2 erreur d'usage,
+ * 3 aucun fichier à convertir.
+ */
+public final class AudioConverterCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_NO_INPUT = 3;
+
+    private static final String[] OUTPUT_FORMATS = {"WAV", "W64", "AIFF", "AU"};
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    // Options, initialisées aux valeurs par défaut de l'interface
+    private String format = "WAV";
+    private int sampleSize = 16;
+    private float sampleRate = 44100f;
+    private int channelOption = ConversionPreset.CHANNELS_ORIGINAL;
+    private int volume = 100;
+    private float loudnessTarget = Float.NaN;
+    private File outputDirectory = new File(System.getProperty("user.home"), "AudioConverter_Output");
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean autoThreads = false;
+    private ResamplerQuality resamplerQuality = ResamplerQuality.HIGH;
+    private boolean softLimit = true;
+    private boolean json = false;
+    private boolean quiet = false;
+    private boolean resume = false;
+    private boolean useCache = true;
+    private File metricsFile;
+    private int metricsPort = -1;
+    private File watchDirectory;
+    private final List<ConversionPreset> extraTargets = new ArrayList<>(); // Profils seuls, réglages communs complétés à l'exécution
+    private final List<String> inputs = new ArrayList<>();
+
+    private AudioConverterCli() {
+    }
+
+    /**
+     * Point d'entrée du jar. Sans argument sur un poste avec écran, lance
+     * l'interface graphique, chargée par réflexion : avec des arguments,
+     * aucune classe AWT/Swing n'est chargée.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 && !java.awt.GraphicsEnvironment.isHeadless()) {
+            try {
+                Class.forName("AudioConverter").getMethod("main", String[].class).invoke(null, (Object) args);
+                return;
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Interface graphique indisponible : " + e);
+                System.exit(EXIT_FAILED);
+            }
+        }
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        AudioConverterCli cli = new AudioConverterCli();
+        try {
+            if (!cli.parse(args)) {
+                printUsage(out);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Erreur : " + e.getMessage());
+            printUsage(err);
+            return EXIT_USAGE;
+        }
+        return cli.execute(out, err);
+    }
+
+    // ==================== OPTIONS ====================
+
+    /** Renvoie false si l'aide a été demandée. */
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-h":
+                case "--help":
+                    return false;
+                case "-f":
+                case "--format":
+                    format = choice(arg, value(args, ++i, arg).toUpperCase(Locale.ROOT), OUTPUT_FORMATS);
+                    break;
+                case "-q":
+                case "--quality":
+                    sampleSize = Integer.parseInt(choice(arg, value(args, ++i, arg), "8", "16", "24", "32"));
+                    break;
+                case "-r":
+                case "--rate":
+                    sampleRate = integer(arg, value(args, ++i, arg), 1000, 768000);
+                    break;
+                case "-c":
+                case "--channels":
+                    String channels = choice(arg, value(args, ++i, arg).toLowerCase(Locale.ROOT),
+                            "mono", "stereo", "original");
+                    channelOption = "mono".equals(channels) ? ConversionPreset.CHANNELS_MONO
+                            : "stereo".equals(channels) ? ConversionPreset.CHANNELS_STEREO
+                            : ConversionPreset.CHANNELS_ORIGINAL;
+                    break;
+                case "-v":
+                case "--volume":
+                    volume = integer(arg, value(args, ++i, arg), 0, 200);
+                    break;
+                case "-o":
+                case "--output":
+                    outputDirectory = new File(value(args, ++i, arg));
+                    break;
+                case "-t":
+                case "--threads":
+                    String count = value(args, ++i, arg);
+                    autoThreads = "auto".equalsIgnoreCase(count);
+                    if (!autoThreads) threads = integer(arg, count, 1, ConversionPool.MAX_THREADS);
+                    break;
+                case "--resampler":
+                    String quality = choice(arg, value(args, ++i, arg).toUpperCase(Locale.ROOT),
+                            "FAST", "STANDARD", "HIGH", "BEST");
+                    resamplerQuality = ResamplerQuality.valueOf(quality);
+                    break;
+                case "--normalize":
+                    loudnessTarget = decimal(arg, value(args, ++i, arg), -70, 0);
+                    break;
+                case "--no-soft-limit":
+                    softLimit = false;
+                    break;
+                case "--json":
+                    json = true;
+                    break;
+                case "--quiet":
+                    quiet = true;
+                    break;
+                case "--resume":
+                    resume = true;
+                    break;
+                case "--no-cache":
+                    useCache = false;
+                    break;
+                case "--target":
+                    extraTargets.add(target(arg, value(args, ++i, arg)));
+                    break;
+                case "--watch":
+                    watchDirectory = new File(value(args, ++i, arg));
+                    break;
+                case "--metrics-file":
+                    metricsFile = new File(value(args, ++i, arg));
+                    break;
+                case "--metrics-port":
+                    metricsPort = integer(arg, value(args, ++i, arg), 0, 65535);
+                    break;
+                case "--":
+                    for (i++; i < args.length; i++) inputs.add(args[i]);
+                    break;
+                default:
+                    if (arg.startsWith("-") && arg.length() > 1) {
+                        throw new IllegalArgumentException("option inconnue " + arg);
+                    }
+                    inputs.add(arg);
+                    break;
+            }
+        }
+        if (resume && !inputs.isEmpty()) {
+            throw new IllegalArgumentException("--resume reprend les fichiers du journal, sans autre entrée");
+        }
+        if (watchDirectory != null) {
+            if (resume || !inputs.isEmpty()) {
+                throw new IllegalArgumentException("--watch surveille un seul dossier, sans autre entrée");
+            }
+            return true;
+        }
+        if (!resume && inputs.isEmpty()) {
+            throw new IllegalArgumentException("aucun fichier, dossier ou motif en entrée");
+        }
+        return true;
+    }
+
+    /** Profil supplémentaire FORMAT:BITS:HZ:CANAUX, par exemple {@code wav:24:48000:mono}. */
+    private static ConversionPreset target(String option, String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("valeur invalide pour " + option + " : " + value
+                    + " (attendu : format:bits:hz:canaux)");
+        }
+        String targetFormat = choice(option, parts[0].toUpperCase(Locale.ROOT), OUTPUT_FORMATS);
+        int bits = Integer.parseInt(choice(option, parts[1], "8", "16", "24", "32"));
+        int rate = integer(option, parts[2], 1000, 768000);
+        String channels = choice(option, parts[3].toLowerCase(Locale.ROOT), "mono", "stereo", "original");
+        int channelChoice = "mono".equals(channels) ? ConversionPreset.CHANNELS_MONO
+                : "stereo".equals(channels) ? ConversionPreset.CHANNELS_STEREO
+                : ConversionPreset.CHANNELS_ORIGINAL;
+        return new ConversionPreset(targetFormat, rate, bits, channelChoice, 1f, true, ResamplerQuality.HIGH, null);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) throw new IllegalArgumentException("valeur manquante pour " + option);
+        return args[index];
+    }
+
+    private static String choice(String option, String value, String... allowed) {
+        for (String candidate : allowed) {
+            if (candidate.equals(value)) return value;
+        }
+        throw new IllegalArgumentException("valeur invalide pour " + option + " : " + value
+                + " (attendu : " + String.join(", ", allowed).toLowerCase(Locale.ROOT) + ")");
+    }
+
+    private static int integer(String option, String value, int min, int max) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min && parsed <= max) return parsed;
+        } catch (NumberFormatException ignored) {
+            // message commun ci-dessous
+        }
+        throw new IllegalArgumentException("valeur invalide pour " + option + " : " + value
+                + " (entier de " + min + " à " + max + ")");
+    }
+
+    private static float decimal(String option, String value, float min, float max) {
+        try {
+            float parsed = Float.parseFloat(value);
+            if (parsed >= min && parsed <= max) return parsed;
+        } catch (NumberFormatException ignored) {
+            // message commun ci-dessous
+        }
+        throw new IllegalArgumentException("valeur invalide pour " + option + " : " + value
+                + " (nombre de " + (int) min + " à " + (int) max + ")");
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage : java AudioConverterCli [options] <fichier|dossier|motif>...");
+        out.println();
+        out.println("  -f, --format WAV|W64|AIFF|AU      format de sortie (WAV)");
+        out.println("  -q, --quality 8|16|24|32          bits par échantillon (16)");
+        out.println("  -r, --rate HZ                     fréquence d'échantillonnage (44100)");
+        out.println("  -c, --channels mono|stereo|original  canaux (original)");
+        out.println("  -v, --volume 0-200                volume en pourcentage (100)");
+        out.println("      --normalize LUFS              normalise la sonie (EBU R128, par ex. -23)");
+        out.println("                                    au lieu d'appliquer le volume");
+        out.println("  -o, --output DOSSIER              dossier de sortie (~/AudioConverter_Output)");
+        out.println("  -t, --threads N|auto              workers parallèles (nombre de cœurs)");
+        out.println("      --target FORMAT:BITS:HZ:CANAUX  cible supplémentaire, répétable (wav:24:48000:mono) ;");
+        out.println("                                    chaque fichier n'est décodé qu'une fois");
+        out.println("      --resampler fast|standard|high|best  qualité du rééchantillonnage (high)");
+        out.println("      --no-soft-limit               désactive le limiteur doux");
+        out.println("      --json                        une ligne JSON par fichier, puis un bilan");
+        out.println("      --quiet                       n'écrit pas le journal sur la sortie d'erreur");
+        out.println("      --no-cache                    reconvertit même les fichiers déjà en cache");
+        out.println("      --resume                      reprend le lot interrompu du dossier de sortie,");
+        out.println("                                    avec ses paramètres d'origine");
+        out.println("      --watch DOSSIER               convertit les fichiers déposés dans le dossier,");
+        out.println("                                    jusqu'à Ctrl+C");
+        out.println("      --metrics-file FICHIER        réécrit les métriques chaque seconde");
+        out.println("                                    (JSON si .json, texte Prometheus sinon)");
+        out.println("      --metrics-port PORT           sert /metrics et /metrics.json sur 127.0.0.1");
+        out.println();
+        out.println("Les motifs (*.flac, album/**/*.wav) sont développés par l'application ;");
+        out.println("un dossier est parcouru récursivement.");
+        out.println("Codes de sortie : 0 succès, 1 au moins un échec, 2 erreur d'usage, 3 aucun fichier.");
+    }
+
+    // ==================== EXÉCUTION ====================
+
+    private int execute(PrintStream out, PrintStream err) {
+        ConversionEngine engine = new ConversionEngine(threads, threads, message -> {
+            if (!quiet) err.println("[" + LocalDateTime.now().format(TIME) + "] " + message);
+        });
+        // Ctrl+C : les conversions en cours s'arrêtent proprement (temporaires supprimés, ffmpeg tué)
+        CountDownLatch finished = new CountDownLatch(1);
+        CountDownLatch stopSignal = new CountDownLatch(1);
+        Thread interruptHook = new Thread(() -> {
+            engine.requestStop();
+            stopSignal.countDown();
+            try {
+                finished.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                // Arrêt de la JVM sans attendre davantage
+            }
+        }, "cli-stop");
+        Runtime.getRuntime().addShutdownHook(interruptHook);
+        MetricsExporter metrics = null;
+        try {
+            engine.getPool().setAutoTuning(autoThreads);
+            if (metricsFile != null || metricsPort >= 0) {
+                metrics = new MetricsExporter(engine.getMetrics());
+                if (metricsFile != null) metrics.writeTo(metricsFile);
+                if (metricsPort >= 0) {
+                    try {
+                        int port = metrics.serve(metricsPort);
+                        if (!quiet) err.println("Métriques : http://127.0.0.1:" + port + "/metrics");
+                    } catch (IOException e) {
+                        err.println("Erreur : port de métriques indisponible : " + e.getMessage());
+                        return EXIT_USAGE;
+                    }
+                }
+            }
+            if (useCache) {
+                try {
+                    engine.setCache(new ConversionCache(ConversionCache.DEFAULT_DIRECTORY, ConversionCache.DEFAULT_MAX_BYTES));
+                } catch (IOException e) {
+                    if (!quiet) err.println("Cache des conversions indisponible : " + e.getMessage());
+                }
+            }
+
+            List<AudioFile> jobs = new ArrayList<>();
+            List<ConversionPreset> targets = new ArrayList<>();
+            targets.add(new ConversionPreset(format, sampleRate, sampleSize, channelOption,
+                    volume / 100f, softLimit, resamplerQuality, outputDirectory));
+            for (ConversionPreset extra : extraTargets) {
+                targets.add(new ConversionPreset(extra.outputFormat, extra.sampleRate, extra.sampleSizeInBits,
+                        extra.channelOption, volume / 100f, softLimit, resamplerQuality, outputDirectory));
+            }
+            if (!Float.isNaN(loudnessTarget)) {
+                targets.replaceAll(target -> target.withLoudnessTarget(loudnessTarget));
+            }
+            targets = ConversionPreset.distinctTargets(targets);
+            if (watchDirectory != null) {
+                return watch(engine, targets, stopSignal, out, err);
+            }
+            List<BatchJournal.Entry> carriedOver = new ArrayList<>();
+            try {
+                if (resume) {
+                    BatchJournal.Recovery recovery = BatchJournal.recover(outputDirectory);
+                    if (recovery == null) {
+                        err.println("Aucun lot interrompu dans " + outputDirectory.getAbsolutePath());
+                        return EXIT_NO_INPUT;
+                    }
+                    recovery.deletePartialOutputs();
+                    targets = recovery.targets;
+                    carriedOver.addAll(recovery.completed);
+                    for (File file : recovery.pending) {
+                        jobs.add(new AudioFile(file));
+                    }
+                    if (!quiet) {
+                        err.println("Reprise : " + recovery.completed.size() + " fichier(s) déjà converti(s), "
+                                + jobs.size() + " à refaire.");
+                    }
+                } else {
+                    for (File file : expandInputs(engine)) {
+                        jobs.add(new AudioFile(file));
+                    }
+                }
+            } catch (IllegalArgumentException | IOException | UncheckedIOException e) {
+                err.println("Erreur : " + e.getMessage());
+                return EXIT_USAGE;
+            }
+            if (jobs.isEmpty() && !resume) {
+                err.println("Aucun fichier audio à convertir.");
+                return EXIT_NO_INPUT;
+            }
+            if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+                err.println("Erreur : impossible de créer le dossier " + outputDirectory.getAbsolutePath());
+                return EXIT_USAGE;
+            }
+
+            long start = System.nanoTime();
+
+            // Les résultats sont écrits par le seul thread collecteur : pas d'entrelacement
+            ConversionEngine.BatchResult result = engine.runBatch(jobs, targets, carriedOver, new ConversionEngine.Listener() {
+                @Override
+                public void jobFinished(AudioFile audioFile, boolean success, int completed, int total) {
+                    if (audioFile != null) printResult(out, audioFile, success);
+                }
+            });
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            ConversionCache cache = engine.getCache();
+            if (json) {
+                out.println("{\"total\":" + result.total + ",\"success\":" + result.success
+                        + ",\"failed\":" + result.failed + ",\"skipped\":" + result.skipped()
+                        + (cache == null ? "" : ",\"cacheHits\":" + cache.getHits()
+                                + ",\"cacheMisses\":" + cache.getMisses())
+                        + ",\"seconds\":" + seconds(elapsed) + "}");
+            } else {
+                out.println(String.format("%d fichier(s) : %d réussi(s), %d échec(s) en %s",
+                        result.total, result.success, result.failed, TextFormats.formatDuration(elapsed))
+                        + (cache == null ? "" : String.format(" (cache : %d trouvé(s), %d absent(s))",
+                                cache.getHits(), cache.getMisses())));
+            }
+            return result.failed > 0 || result.skipped() > 0 ? EXIT_FAILED : EXIT_OK;
+        } finally {
+            if (metrics != null) metrics.close(); // Dernier relevé écrit avant la sortie
+            finished.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(interruptHook);
+            } catch (IllegalStateException ignored) {
+                // Arrêt de la JVM déjà en cours : le crochet s'exécute
+            }
+            engine.shutdown();
+        }
+    }
+
+    private void printResult(PrintStream out, AudioFile audioFile, boolean success) {
+        AudioFile.State state = audioFile.state();
+        if (json) {
+            StringBuilder outputs = new StringBuilder("[");
+            for (File output : state.outputs) {
+                if (outputs.length() > 1) outputs.append(',');
+                outputs.append(quote(output.getPath()));
+            }
+            out.println("{\"input\":" + quote(audioFile.file.getPath())
+                    + ",\"status\":\"" + state.status + "\""
+                    + ",\"output\":" + (success ? quote(state.outputFile.getPath()) : "null")
+                    + ",\"outputs\":" + outputs.append(']')
+                    + ",\"seconds\":" + seconds(audioFile.progress.elapsedSeconds()) + "}");
+        } else {
+            StringBuilder line = new StringBuilder(success ? "OK     " : "ÉCHEC  ").append(audioFile.file.getPath());
+            for (int i = 0; i < state.outputs.size(); i++) {
+                line.append(i == 0 ? " -> " : ", ").append(state.outputs.get(i).getPath());
+            }
+            out.println(line);
+        }
+        out.flush();
+    }
+
+    /** Mode dossier surveillé : convertit les arrivées jusqu'à Ctrl+C, puis affiche le bilan. */
+    private int watch(ConversionEngine engine, List<ConversionPreset> targets, CountDownLatch stopSignal,
+                      PrintStream out, PrintStream err) {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            err.println("Erreur : impossible de créer le dossier " + outputDirectory.getAbsolutePath());
+            return EXIT_USAGE;
+        }
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        // Appelé par les workers : une ligne par println, pas d'entrelacement
+        WatchFolder.Listener listener = new WatchFolder.Listener() {
+            @Override
+            public void jobFinished(AudioFile audioFile, boolean ok, int completed, int total) {
+                (ok ? success : failed).incrementAndGet();
+                printResult(out, audioFile, ok);
+            }
+        };
+        long start = System.nanoTime();
+        try (WatchFolder watcher = new WatchFolder(engine, watchDirectory, targets,
+                engine.getPool().getParallelism() * 2, listener,
+                message -> {
+                    if (!quiet) err.println("[" + LocalDateTime.now().format(TIME) + "] " + message);
+                })) {
+            watcher.start();
+            stopSignal.await();
+        } catch (IOException e) {
+            err.println("Erreur : " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        if (json) {
+            out.println("{\"success\":" + success.get() + ",\"failed\":" + failed.get()
+                    + ",\"seconds\":" + seconds(elapsed) + "}");
+        } else {
+            out.println(String.format("Surveillance arrêtée : %d réussi(s), %d échec(s) en %s",
+                    success.get(), failed.get(), TextFormats.formatDuration(elapsed)));
+        }
+        return failed.get() > 0 ? EXIT_FAILED : EXIT_OK;
+    }
+
+    /** Développe dossiers et motifs ; un chemin explicite inexistant est une erreur d'usage. */
+    private Set<File> expandInputs(ConversionEngine engine) throws IOException {
+        Set<File> files = new LinkedHashSet<>();
+        for (String input : inputs) {
+            int wildcard = firstWildcard(input);
+            if (wildcard >= 0) {
+                expandGlob(input, wildcard, engine, files);
+                continue;
+            }
+            File file = new File(input);
+            if (file.isDirectory()) {
+                try (Stream<Path> walk = Files.walk(file.toPath())) {
+                    walk.filter(Files::isRegularFile)
+                            .map(Path::toFile)
+                            .filter(f -> engine.findBackend(f) != null)
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else if (file.isFile()) {
+                files.add(file);
+            } else {
+                throw new IllegalArgumentException("fichier introuvable : " + input);
+            }
+        }
+        return files;
+    }
+
+    private static void expandGlob(String pattern, int wildcard, ConversionEngine engine, Set<File> files)
+            throws IOException {
+        // Le parcours part du dernier dossier fixe du motif et ne descend que si nécessaire
+        int slash = Math.max(pattern.lastIndexOf('/', wildcard), pattern.lastIndexOf(File.separatorChar, wildcard));
+        Path base = Paths.get(slash < 0 ? "" : pattern.substring(0, slash + 1));
+        String rest = pattern.substring(slash + 1);
+        int depth = rest.contains("**") ? Integer.MAX_VALUE
+                : (int) rest.chars().filter(c -> c == '/' || c == File.separatorChar).count() + 1;
+        if (!Files.isDirectory(base.toAbsolutePath())) return;
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> walk = Files.walk(base, depth)) {
+            walk.filter(matcher::matches)
+                    .filter(Files::isRegularFile)
+                    .map(Path::toFile)
+                    .filter(f -> engine.findBackend(f) != null)
+                    .sorted()
+                    .forEach(files::add);
+        }
+    }
+
+    private static int firstWildcard(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) return i;
+        }
+        return -1;
+    }
+
+    private static String seconds(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,148 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fichier de la file de conversion, partagé entre l'interface et le moteur.
+ * Statut et sortie forment un {@link State} immuable, remplacé en bloc par
+ * compare-and-set : l'EDT lit un état cohérent sans verrou, et deux workers
+ * ne peuvent pas prendre le même fichier.
+ */
+class AudioFile {
+
+    /** Instantané de l'état d'une conversion ; la sortie n'existe qu'à l'état COMPLETED. */
+    static final class State {
+        static final State PENDING = new State(AudioFileStatus.PENDING, Collections.emptyList(), 0);
+        static final State CONVERTING = new State(AudioFileStatus.CONVERTING, Collections.emptyList(), 0);
+        static final State FAILED = new State(AudioFileStatus.FAILED, Collections.emptyList(), 0);
+
+        final AudioFileStatus status;
+        final List<File> outputs; // Une sortie par cible
+        final File outputFile; // Première sortie
+        final long outputBytes; // Total relevé par le worker : l'affichage ne touche pas au disque
+
+        private State(AudioFileStatus status, List<File> outputs, long outputBytes) {
+            this.status = status;
+            this.outputs = outputs;
+            this.outputFile = outputs.isEmpty() ? null : outputs.get(0);
+            this.outputBytes = outputBytes;
+        }
+
+        static State completed(List<File> outputs) {
+            long bytes = 0;
+            for (File output : outputs) {
+                bytes += output.length();
+            }
+            return new State(AudioFileStatus.COMPLETED, Collections.unmodifiableList(outputs), bytes);
+        }
+    }
+
+    final File file;
+    final String name;
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+    final JobProgress progress = new JobProgress();
+    int listIndex = -1; // Position dans AudioFileListModel, tenue par le modèle (EDT)
+
+    // Métadonnées lues à l'ajout (voir probe), jamais relues pendant l'affichage
+    long sizeBytes = -1;
+    AudioFormat format;
+    long frameLength = AudioSystem.NOT_SPECIFIED;
+    // Texte affiché sous le nom, mis en forme une fois : le rendu ne fait ni appel disque ni allocation
+    private volatile String description;
+
+    AudioFile(File file) {
+        this.file = file;
+        this.name = file.getName();
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    AudioFileStatus status() {
+        return state.get().status;
+    }
+
+    /** Prend le fichier pour une conversion ; false s'il est déjà en cours ailleurs. */
+    boolean begin() {
+        for (State current; (current = state.get()).status != AudioFileStatus.CONVERTING; ) {
+            if (state.compareAndSet(current, State.CONVERTING)) return true;
+        }
+        return false;
+    }
+
+    /** Fin de conversion, depuis l'état CONVERTING uniquement : succès, échec ou retour en attente. */
+    void finish(State next) {
+        if (!state.compareAndSet(State.CONVERTING, next)) {
+            throw new IllegalStateException(file.getName() + " : transition " + status() + " -> " + next.status);
+        }
+    }
+
+    /**
+     * Lit la taille et l'en-tête du fichier. Les formats inconnus de Java Sound
+     * (MP3, FLAC...) gardent un format null : seul ffmpeg saura les lire.
+     */
+    void probe() {
+        sizeBytes = file.length();
+        try {
+            AudioFileFormat fileFormat = AudioSystem.getAudioFileFormat(file);
+            format = fileFormat.getFormat();
+            frameLength = fileFormat.getFrameLength();
+        } catch (UnsupportedAudioFileException | IOException e) {
+            // PCM flottant, AIFC little-endian... : l'analyseur de conteneur les connaît
+            try {
+                AudioFileLayout layout = AudioFileLayout.probe(file);
+                if (layout != null) {
+                    format = layout.format;
+                    frameLength = layout.frameCount();
+                }
+            } catch (IOException | UnsupportedAudioFileException | RuntimeException ignored) {
+                // Fichier illisible ou en-tête aberrant : l'erreur sera rapportée à la conversion
+            }
+        }
+        description = describe();
+    }
+
+    /** Taille, format et durée relevés par {@link #probe()}. */
+    String description() {
+        String text = description;
+        if (text == null) {
+            description = text = describe(); // Fichier jamais analysé (reprise, tests)
+        }
+        return text;
+    }
+
+    private String describe() {
+        StringBuilder text = new StringBuilder(TextFormats.formatFileSize(Math.max(0, sizeBytes)));
+        if (format != null) {
+            text.append("  •  ").append(Math.round(format.getSampleRate())).append(" Hz");
+            if (format.getSampleSizeInBits() > 0) {
+                text.append(" / ").append(format.getSampleSizeInBits()).append(" bits");
+            }
+            text.append(" / ").append(format.getChannels() == 1 ? "mono"
+                    : format.getChannels() == 2 ? "stéréo" : format.getChannels() + " canaux");
+        }
+        double duration = durationSeconds();
+        if (duration >= 0) {
+            text.append("  •  ").append(TextFormats.formatDuration(duration));
+        }
+        return text.toString();
+    }
+
+    /** Durée en secondes, ou -1 si l'en-tête ne la donne pas. */
+    double durationSeconds() {
+        if (format == null || frameLength <= 0 || format.getFrameRate() <= 0) return -1;
+        return frameLength / format.getFrameRate();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,268 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Disposition d'un fichier PCM brut (WAV, RF64, W64, AIFF/AIFC, AU) :
+ * format des échantillons, position et longueur de la charge utile. Permet
+ * de lire ou recopier les données sans passer par un {@code AudioInputStream},
+ * ou d'en ouvrir un quand Java Sound ne connaît pas le conteneur.
+ */
+final class AudioFileLayout {
+
+    private static final int PROBE_BYTES = 64 * 1024;
+
+    final AudioFormat format;
+    final long dataOffset;
+    final long dataLength;
+
+    private AudioFileLayout(AudioFormat format, long dataOffset, long dataLength) {
+        this.format = format;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength - dataLength % format.getFrameSize();
+    }
+
+    long frameCount() {
+        return dataLength / format.getFrameSize();
+    }
+
+    /**
+     * Flux sur la charge utile, pour les conteneurs que Java Sound ne lit pas
+     * (RF64, W64). Le canal est positionné sur les données et le flux borné
+     * à leur longueur : aucun octet de chunk ne suit dans l'échantillon.
+     */
+    AudioInputStream open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(dataOffset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        InputStream payload = new BufferedInputStream(Channels.newInputStream(channel), PROBE_BYTES);
+        return new AudioInputStream(payload, format, frameCount());
+    }
+
+    /**
+     * Analyse l'en-tête ; renvoie null si le fichier n'est pas un conteneur PCM
+     * reconnu. Un en-tête reconnu mais incohérent (trame vide) est refusé.
+     */
+    static AudioFileLayout probe(File file) throws IOException, UnsupportedAudioFileException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(PROBE_BYTES, fileSize));
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // lecture jusqu'à remplir l'en-tête
+            }
+            header.flip();
+            if (header.remaining() < 12) return null;
+
+            String magic = fourCC(header, 0);
+            if (("RIFF".equals(magic) || "RF64".equals(magic) || "BW64".equals(magic))
+                    && "WAVE".equals(fourCC(header, 8))) {
+                return parseWave(header, fileSize);
+            }
+            if (header.remaining() >= 40 && startsWith(header, 0, AudioHeaders.W64_RIFF)
+                    && startsWith(header, 24, AudioHeaders.W64_WAVE)) {
+                return parseW64(header, fileSize);
+            }
+            if ("FORM".equals(magic)) {
+                String form = fourCC(header, 8);
+                if ("AIFF".equals(form) || "AIFC".equals(form)) {
+                    return parseAiff(header, fileSize, "AIFC".equals(form));
+                }
+            }
+            if (".snd".equals(magic)) {
+                return parseAu(header, fileSize);
+            }
+            return null;
+        }
+    }
+
+    private static AudioFileLayout parseWave(ByteBuffer header, long fileSize) throws UnsupportedAudioFileException {
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        AudioFormat format = null;
+        long ds64DataLength = -1;
+        long pos = 12; // long : une taille de chunk proche de 4 Go ne doit pas faire déborder la position
+        while (pos + 8 <= header.limit()) {
+            String id = fourCC(header, (int) pos);
+            long size = header.getInt((int) pos + 4) & 0xFFFFFFFFL;
+            int body = (int) pos + 8;
+
+            if ("ds64".equals(id) && body + 16 <= header.limit()) {
+                ds64DataLength = header.getLong(body + 8); // RF64 : tailles 64 bits hors des chunks
+            } else if ("fmt ".equals(id) && body + 16 <= header.limit()) {
+                format = parseFmt(header, body);
+                if (format == null) return null;
+            } else if ("data".equals(id)) {
+                if (format == null) return null;
+                if (size == 0xFFFFFFFFL && ds64DataLength >= 0) size = ds64DataLength;
+                return new AudioFileLayout(format, body, Math.min(size, fileSize - body));
+            }
+            pos = body + size + (size & 1);
+        }
+        return null;
+    }
+
+    /** Wave64 : chunks identifiés par GUID, tailles 64 bits en-tête compris, alignés sur 8 octets. */
+    private static AudioFileLayout parseW64(ByteBuffer header, long fileSize) throws UnsupportedAudioFileException {
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        AudioFormat format = null;
+        long pos = 40;
+        while (pos + 24 <= header.limit()) {
+            long size = header.getLong((int) pos + 16);
+            int body = (int) pos + 24;
+            if (size < 24) return null;
+
+            if (startsWith(header, (int) pos, AudioHeaders.W64_FMT) && body + 16 <= header.limit()) {
+                format = parseFmt(header, body);
+                if (format == null) return null;
+            } else if (startsWith(header, (int) pos, AudioHeaders.W64_DATA)) {
+                if (format == null) return null;
+                return new AudioFileLayout(format, body, Math.min(size - 24, fileSize - body));
+            }
+            if (size > fileSize) return null; // Chunk qui dépasse le fichier : la suite n'est pas un en-tête
+            pos += size + (-size & 7);
+        }
+        return null;
+    }
+
+    /** Corps d'un chunk {@code fmt } (WAV, RF64, W64) ; null si l'encodage n'est pas du PCM. */
+    private static AudioFormat parseFmt(ByteBuffer header, int body) throws UnsupportedAudioFileException {
+        int tag = header.getShort(body) & 0xFFFF;
+        int channels = header.getShort(body + 2);
+        int rate = header.getInt(body + 4);
+        int blockAlign = header.getShort(body + 12);
+        int bits = header.getShort(body + 14);
+        checkFrame(channels, blockAlign);
+        if (tag == 0xFFFE && body + 26 <= header.limit()) {
+            tag = header.getShort(body + 24) & 0xFFFF; // Sous-format WAVE_FORMAT_EXTENSIBLE
+        }
+        if (tag == 1) {
+            return new AudioFormat(bits == 8 ? AudioFormat.Encoding.PCM_UNSIGNED
+                    : AudioFormat.Encoding.PCM_SIGNED, rate, bits, channels, blockAlign, rate, false);
+        }
+        if (tag == 3) {
+            return new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, rate, bits, channels, blockAlign, rate, false);
+        }
+        return null;
+    }
+
+    private static AudioFileLayout parseAiff(ByteBuffer header, long fileSize, boolean aifc) throws UnsupportedAudioFileException {
+        header.order(ByteOrder.BIG_ENDIAN);
+        int channels = 0;
+        int bits = 0;
+        double rate = 0;
+        boolean littleEndian = false;
+        boolean floating = false;
+        boolean common = false;
+        long soundSize = -1; // SSND peut précéder COMM : le format n'est connu qu'à la fin du parcours
+        long soundStart = 0;
+        long pos = 12;
+
+        while (pos + 8 <= header.limit()) {
+            String id = fourCC(header, (int) pos);
+            long size = header.getInt((int) pos + 4) & 0xFFFFFFFFL;
+            int body = (int) pos + 8;
+
+            if ("COMM".equals(id) && body + 18 <= header.limit()) {
+                common = true;
+                channels = header.getShort(body);
+                bits = header.getShort(body + 6);
+                rate = readExtended(header, body + 8);
+                if (aifc && body + 22 <= header.limit()) {
+                    String compression = fourCC(header, body + 18);
+                    if ("sowt".equals(compression)) {
+                        littleEndian = true;
+                    } else if ("fl32".equals(compression) || "FL32".equals(compression)) {
+                        floating = true;
+                    } else if (!"NONE".equals(compression) && !"twos".equals(compression)) {
+                        return null;
+                    }
+                }
+            } else if ("SSND".equals(id) && body + 8 <= header.limit()) {
+                long offset = header.getInt(body) & 0xFFFFFFFFL;
+                soundStart = body + 8 + offset;
+                soundSize = Math.max(0, Math.min(size - 8 - offset, fileSize - soundStart));
+                if (common) break;
+            }
+            pos = body + size + (size & 1);
+        }
+        if (soundSize < 0 || !common) return null; // Chunk manquant ou hors de l'en-tête lu
+
+        int frameSize = channels * ((bits + 7) / 8);
+        checkFrame(channels, frameSize);
+        AudioFormat format = new AudioFormat(
+                floating ? AudioFormat.Encoding.PCM_FLOAT : AudioFormat.Encoding.PCM_SIGNED,
+                (float) rate, bits, channels, frameSize, (float) rate, !littleEndian);
+        return new AudioFileLayout(format, soundStart, soundSize);
+    }
+
+    private static AudioFileLayout parseAu(ByteBuffer header, long fileSize) throws UnsupportedAudioFileException {
+        header.order(ByteOrder.BIG_ENDIAN);
+        if (header.limit() < 24) return null;
+        long offset = header.getInt(4) & 0xFFFFFFFFL;
+        long size = header.getInt(8) & 0xFFFFFFFFL;
+        int encoding = header.getInt(12);
+        int rate = header.getInt(16);
+        int channels = header.getInt(20);
+
+        int bits;
+        AudioFormat.Encoding pcm = AudioFormat.Encoding.PCM_SIGNED;
+        switch (encoding) {
+            case 2: bits = 8; break;
+            case 3: bits = 16; break;
+            case 4: bits = 24; break;
+            case 5: bits = 32; break;
+            case 6: bits = 32; pcm = AudioFormat.Encoding.PCM_FLOAT; break;
+            case 7: bits = 64; pcm = AudioFormat.Encoding.PCM_FLOAT; break;
+            default: return null; // u-law, a-law... : décodés par Java Sound
+        }
+        checkFrame(channels, channels * bits / 8);
+        long available = Math.max(0, fileSize - offset);
+        long length = size == 0xFFFFFFFFL ? available : Math.min(size, available);
+        AudioFormat format = new AudioFormat(pcm, rate, bits, channels, channels * bits / 8, rate, true);
+        return new AudioFileLayout(format, offset, length);
+    }
+
+    /** Nombre de canaux ou taille de trame nuls ou négatifs : en-tête forgé ou corrompu. */
+    private static void checkFrame(int channels, int frameSize) throws UnsupportedAudioFileException {
+        if (channels <= 0 || frameSize <= 0) {
+            throw new UnsupportedAudioFileException("En-tête invalide : " + channels + " canal(aux), trame de "
+                    + frameSize + " octet(s)");
+        }
+    }
+
+    /** Flottant étendu IEEE 80 bits, utilisé par AIFF pour la fréquence. */
+    private static double readExtended(ByteBuffer buffer, int pos) {
+        int exponent = ((buffer.get(pos) & 0x7F) << 8) | (buffer.get(pos + 1) & 0xFF);
+        long mantissa = buffer.getLong(pos + 2);
+        if (exponent == 0 && mantissa == 0) return 0;
+        double value = (mantissa >>> 11) * Math.pow(2, exponent - 16383 - 52);
+        return (buffer.get(pos) & 0x80) != 0 ? -value : value;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int pos, byte[] id) {
+        if (pos + id.length > buffer.limit()) return false;
+        for (int i = 0; i < id.length; i++) {
+            if (buffer.get(pos + i) != id[i]) return false;
+        }
+        return true;
+    }
+
+    private static String fourCC(ByteBuffer buffer, int pos) {
+        if (pos + 4 > buffer.limit()) return "";
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) chars[i] = (char) (buffer.get(pos + i) & 0xFF);
+        return new String(chars);
+    }
+}
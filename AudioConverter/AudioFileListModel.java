@@ -0,0 +1,109 @@
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Modèle unique de la file de conversion. Chaque fichier connaît sa position
+ * (indexOf en temps constant) ; ajouts et suppressions se font par lots et
+ * émettent un événement par intervalle, jamais un par élément.
+ * À n'utiliser que sur l'EDT.
+ */
+final class AudioFileListModel extends AbstractListModel<AudioFile> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Au-delà, une suppression éparse est signalée comme un remplacement complet
+    private static final int MAX_REMOVAL_EVENTS = 64;
+
+    private final ArrayList<AudioFile> files = new ArrayList<>();
+
+    @Override
+    public int getSize() {
+        return files.size();
+    }
+
+    @Override
+    public AudioFile getElementAt(int index) {
+        return files.get(index);
+    }
+
+    boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    /** Vue en lecture seule, valable jusqu'à la prochaine modification. */
+    List<AudioFile> view() {
+        return Collections.unmodifiableList(files);
+    }
+
+    List<AudioFile> snapshot() {
+        return new ArrayList<>(files);
+    }
+
+    /** Position du fichier dans la liste, ou -1 s'il n'y figure plus. */
+    int indexOf(AudioFile audioFile) {
+        int index = audioFile.listIndex;
+        return index >= 0 && index < files.size() && files.get(index) == audioFile ? index : -1;
+    }
+
+    void addAll(List<AudioFile> batch) {
+        if (batch.isEmpty()) return;
+        int first = files.size();
+        files.ensureCapacity(first + batch.size());
+        for (AudioFile audioFile : batch) {
+            audioFile.listIndex = files.size();
+            files.add(audioFile);
+        }
+        fireIntervalAdded(this, first, files.size() - 1);
+    }
+
+    /** Supprime les positions données (triées par ordre croissant) en un seul passage. */
+    void removeIndices(int[] indices) {
+        if (indices.length == 0) return;
+        int oldSize = files.size();
+
+        // Compactage en place : chaque élément conservé est déplacé au plus une fois
+        int write = indices[0];
+        int next = 0;
+        for (int read = indices[0]; read < oldSize; read++) {
+            if (next < indices.length && indices[next] == read) {
+                files.get(read).listIndex = -1;
+                next++;
+                continue;
+            }
+            AudioFile kept = files.get(read);
+            kept.listIndex = write;
+            files.set(write++, kept);
+        }
+        files.subList(write, oldSize).clear();
+
+        int runs = 1;
+        for (int i = 1; i < indices.length; i++) {
+            if (indices[i] != indices[i - 1] + 1) runs++;
+        }
+        if (runs > MAX_REMOVAL_EVENTS) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+            if (!files.isEmpty()) fireIntervalAdded(this, 0, files.size() - 1);
+            return;
+        }
+        // Intervalles signalés de la fin vers le début : les positions restent valables
+        int end = indices.length - 1;
+        for (int i = indices.length - 1; i >= 0; i--) {
+            if (i == 0 || indices[i - 1] != indices[i] - 1) {
+                fireIntervalRemoved(this, indices[i], indices[end]);
+                end = i - 1;
+            }
+        }
+    }
+
+    void clear() {
+        if (files.isEmpty()) return;
+        int last = files.size() - 1;
+        for (AudioFile audioFile : files) {
+            audioFile.listIndex = -1;
+        }
+        files.clear();
+        fireIntervalRemoved(this, 0, last);
+    }
+}
@@ -0,0 +1,3 @@
+enum AudioFileStatus {
+    PENDING, CONVERTING, COMPLETED, FAILED
+}
@@ -0,0 +1,174 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * En-têtes WAV, W64, AIFF et AU pour une charge PCM dont la longueur est connue.
+ * Le format doit déjà être celui du conteneur (voir {@link PcmCodec#containerFormat}).
+ *
+ * Un WAV dont la taille dépasse les 4 Go d'un champ RIFF 32 bits devient un
+ * RF64 (EBU Tech 3306) : les tailles passent dans un chunk {@code ds64}. Le
+ * W64 (Sony Wave64) a des tailles 64 bits d'origine.
+ */
+final class AudioHeaders {
+
+    static final AudioFileFormat.Type W64 = new AudioFileFormat.Type("W64", "w64");
+
+    // Identifiants Wave64 : GUID dans l'ordre des octets du fichier
+    static final byte[] W64_RIFF = guid("riff", 0x2E, 0x91, 0xCF, 0x11, 0xA5, 0xD6, 0x28, 0xDB, 0x04, 0xC1, 0x00, 0x00);
+    static final byte[] W64_WAVE = guid("wave", 0xF3, 0xAC, 0xD3, 0x11, 0x8C, 0xD1, 0x00, 0xC0, 0x4F, 0x8E, 0xDB, 0x8A);
+    static final byte[] W64_FMT = guid("fmt ", 0xF3, 0xAC, 0xD3, 0x11, 0x8C, 0xD1, 0x00, 0xC0, 0x4F, 0x8E, 0xDB, 0x8A);
+    static final byte[] W64_DATA = guid("data", 0xF3, 0xAC, 0xD3, 0x11, 0x8C, 0xD1, 0x00, 0xC0, 0x4F, 0x8E, 0xDB, 0x8A);
+
+    private static final long MAX_UINT32 = 0xFFFFFFFFL;
+    private static final int WAVE_HEADER = 44;
+    private static final int RF64_HEADER = 80; // ds64 de 28 octets en plus, chunk compris
+    private static final int W64_HEADER = 104;
+
+    private AudioHeaders() {
+    }
+
+    static ByteBuffer header(AudioFileFormat.Type type, AudioFormat format, long frames) {
+        long dataLength = frames * format.getFrameSize();
+        if (AudioFileFormat.Type.AIFF.equals(type)) return aiff(format, frames, dataLength);
+        if (AudioFileFormat.Type.AU.equals(type)) return au(format, dataLength);
+        if (W64.equals(type)) return w64(format, dataLength);
+        return WAVE_HEADER - 8 + dataLength + (dataLength & 1) > MAX_UINT32
+                ? rf64(format, frames, dataLength)
+                : wave(format, dataLength, false);
+    }
+
+    /**
+     * En-tête d'un flux dont la longueur ne sera connue qu'à la fin : même
+     * taille quelle que soit la longueur finale, pour être réécrit en place.
+     * En WAV, la place du {@code ds64} est réservée par un chunk {@code JUNK},
+     * que les lecteurs ignorent, et remplie seulement si le fichier dépasse 4 Go.
+     */
+    static ByteBuffer streamingHeader(AudioFileFormat.Type type, AudioFormat format, long frames) {
+        if (!AudioFileFormat.Type.WAVE.equals(type)) return header(type, format, frames);
+        long dataLength = frames * format.getFrameSize();
+        return RF64_HEADER - 8 + dataLength + (dataLength & 1) > MAX_UINT32
+                ? rf64(format, frames, dataLength)
+                : wave(format, dataLength, true);
+    }
+
+    /** Octets de bourrage après les données (alignement des chunks : 2 octets, 8 en W64). */
+    static int trailerLength(AudioFileFormat.Type type, AudioFormat format, long frames) {
+        if (AudioFileFormat.Type.AU.equals(type)) return 0;
+        long dataLength = frames * format.getFrameSize();
+        if (W64.equals(type)) return (int) (-dataLength & 7);
+        return (int) (dataLength & 1);
+    }
+
+    /**
+     * Refuse une charge que le conteneur ne sait pas décrire : l'AIFF n'a que
+     * des tailles 32 bits, sans extension comparable au RF64.
+     */
+    static void checkLength(AudioFileFormat.Type type, long dataLength) throws IOException {
+        if (AudioFileFormat.Type.AIFF.equals(type) && 46 + dataLength + (dataLength & 1) > MAX_UINT32) {
+            throw new IOException("Fichier trop volumineux pour l'AIFF (4 Go au plus) : choisissez WAV ou W64");
+        }
+    }
+
+    private static ByteBuffer wave(AudioFormat format, long dataLength, boolean reserveDs64) {
+        int junk = reserveDs64 ? RF64_HEADER - WAVE_HEADER : 0;
+        ByteBuffer b = ByteBuffer.allocate(WAVE_HEADER + junk).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(ascii("RIFF")).putInt((int) (WAVE_HEADER - 8 + junk + dataLength + (dataLength & 1))).put(ascii("WAVE"));
+        if (reserveDs64) {
+            b.put(ascii("JUNK")).putInt(junk - 8).position(b.position() + junk - 8);
+        }
+        putFmt(b.put(ascii("fmt ")).putInt(16), format);
+        b.put(ascii("data")).putInt((int) dataLength);
+        return b.flip();
+    }
+
+    private static ByteBuffer rf64(AudioFormat format, long frames, long dataLength) {
+        ByteBuffer b = ByteBuffer.allocate(RF64_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(ascii("RF64")).putInt(-1).put(ascii("WAVE"));
+        b.put(ascii("ds64")).putInt(28)
+                .putLong(RF64_HEADER - 8 + dataLength + (dataLength & 1)) // Taille RIFF
+                .putLong(dataLength)
+                .putLong(frames)
+                .putInt(0); // Pas de table d'autres chunks
+        putFmt(b.put(ascii("fmt ")).putInt(16), format);
+        b.put(ascii("data")).putInt(-1); // Taille réelle dans ds64
+        return b.flip();
+    }
+
+    private static ByteBuffer w64(AudioFormat format, long dataLength) {
+        ByteBuffer b = ByteBuffer.allocate(W64_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        // Les tailles W64 comptent l'en-tête de chunk (GUID + taille, 24 octets)
+        b.put(W64_RIFF).putLong(W64_HEADER + dataLength + (-dataLength & 7)).put(W64_WAVE);
+        putFmt(b.put(W64_FMT).putLong(24 + 16), format);
+        b.put(W64_DATA).putLong(24 + dataLength);
+        return b.flip();
+    }
+
+    /** Corps {@code WAVEFORMAT} de 16 octets, commun à WAV, RF64 et W64. */
+    private static void putFmt(ByteBuffer b, AudioFormat format) {
+        boolean floating = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding());
+        int rate = Math.round(format.getSampleRate());
+        b.putShort((short) (floating ? 3 : 1))
+                .putShort((short) format.getChannels())
+                .putInt(rate)
+                .putInt(rate * format.getFrameSize())
+                .putShort((short) format.getFrameSize())
+                .putShort((short) format.getSampleSizeInBits());
+    }
+
+    private static ByteBuffer aiff(AudioFormat format, long frames, long dataLength) {
+        ByteBuffer b = ByteBuffer.allocate(54).order(ByteOrder.BIG_ENDIAN);
+        b.put(ascii("FORM")).putInt((int) (46 + dataLength + (dataLength & 1))).put(ascii("AIFF"));
+        b.put(ascii("COMM")).putInt(18)
+                .putShort((short) format.getChannels())
+                .putInt((int) frames)
+                .putShort((short) format.getSampleSizeInBits());
+        putExtended(b, format.getSampleRate());
+        b.put(ascii("SSND")).putInt((int) (dataLength + 8)).putInt(0).putInt(0);
+        return b.flip();
+    }
+
+    private static ByteBuffer au(AudioFormat format, long dataLength) {
+        int encoding;
+        switch (format.getSampleSizeInBits()) {
+            case 8: encoding = 2; break;
+            case 16: encoding = 3; break;
+            case 24: encoding = 4; break;
+            default: encoding = AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding()) ? 6 : 5; break;
+        }
+        ByteBuffer b = ByteBuffer.allocate(24).order(ByteOrder.BIG_ENDIAN);
+        b.put(ascii(".snd")).putInt(24)
+                .putInt(dataLength > 0xFFFFFFFEL ? -1 : (int) dataLength)
+                .putInt(encoding)
+                .putInt(Math.round(format.getSampleRate()))
+                .putInt(format.getChannels());
+        return b.flip();
+    }
+
+    /** Flottant étendu IEEE 80 bits (fréquence AIFF). */
+    private static void putExtended(ByteBuffer b, double value) {
+        if (value <= 0) {
+            b.putShort((short) 0).putLong(0);
+            return;
+        }
+        int exponent = Math.getExponent(value);
+        // Bit entier explicite en position 63 : on passe par 2^62 pour rester dans un long signé
+        long mantissa = ((long) (value / Math.pow(2, exponent - 62))) << 1;
+        b.putShort((short) (exponent + 16383)).putLong(mantissa);
+    }
+
+    private static byte[] guid(String fourCC, int... rest) {
+        byte[] bytes = new byte[16];
+        System.arraycopy(ascii(fourCC), 0, bytes, 0, 4);
+        for (int i = 0; i < rest.length; i++) bytes[4 + i] = (byte) rest[i];
+        return bytes;
+    }
+
+    private static byte[] ascii(String fourCC) {
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) bytes[i] = (byte) fourCC.charAt(i);
+        return bytes;
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal du lot en cours ({@code AudioConverter.journal} dans le dossier de
+ * sortie) : paramètres du lot puis chaque changement d'état, une ligne par
+ * événement, identifié par chemin, taille et date de modification du fichier
+ * source. Les workers ne font que déposer une ligne dans une file ; un thread
+ * dédié écrit et synchronise le disque par groupes, au plus toutes les
+ * {@value #FSYNC_INTERVAL_MS} ms. Un lot sans ligne de fin peut être repris.
+ */
+final class BatchJournal {
+
+    static final String FILE_NAME = "AudioConverter.journal";
+    private static final String HEADER = "# AudioConverter journal 1";
+    private static final long FSYNC_INTERVAL_MS = 250;
+    private static final String END = "END";
+    private static final String WAKE = ""; // Réveille l'écrivain sans rien écrire
+
+    /** Fichier source tel qu'il était lors de sa dernière mention dans le journal. */
+    static final class Entry {
+        final File file;
+        final long size;
+        final long modified;
+
+        Entry(File file, long size, long modified) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static Entry of(File file) {
+            return new Entry(file, file.length(), file.lastModified());
+        }
+
+        boolean isUnchanged() {
+            return file.isFile() && file.length() == size && file.lastModified() == modified;
+        }
+    }
+
+    /** Lot interrompu retrouvé au démarrage. */
+    static final class Recovery {
+        final List<ConversionPreset> targets;
+        final List<Entry> completed = new ArrayList<>();
+        final List<File> pending = new ArrayList<>();
+        final List<File> partialOutputs = new ArrayList<>();
+
+        Recovery(List<ConversionPreset> targets) {
+            this.targets = targets;
+        }
+
+        /** Temporaires à moitié écrits lors de l'arrêt : à supprimer avant de refaire ces fichiers. */
+        void deletePartialOutputs() throws IOException {
+            for (File output : partialOutputs) {
+                Files.deleteIfExists(output.toPath());
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean finishing;
+    private volatile IOException failure;
+
+    private BatchJournal(FileChannel channel) {
+        this.channel = channel;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Remplace le journal du dossier de la première cible par celui d'un
+     * nouveau lot, avec une ligne de paramètres par cible. Les fichiers déjà
+     * terminés d'un lot repris sont recopiés pour survivre à un nouvel arrêt.
+     */
+    static BatchJournal start(List<ConversionPreset> targets, List<AudioFile> jobs, List<Entry> carriedOver)
+            throws IOException {
+        File directory = targets.get(0).outputDirectory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Dossier inaccessible : " + directory);
+        }
+        FileChannel channel = FileChannel.open(new File(directory, FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        BatchJournal journal = new BatchJournal(channel);
+        journal.queue.add(HEADER);
+        for (ConversionPreset target : targets) {
+            journal.queue.add(presetLine(target));
+        }
+        for (Entry entry : carriedOver) {
+            journal.queue.add(line(AudioFileStatus.COMPLETED, entry));
+        }
+        for (AudioFile job : jobs) {
+            journal.queue.add(line(AudioFileStatus.PENDING, Entry.of(job.file)));
+        }
+        return journal;
+    }
+
+    /** Appelé par les workers : ne bloque jamais sur le disque. */
+    void record(AudioFile audioFile, AudioFileStatus status) {
+        queue.add(line(status, Entry.of(audioFile.file)));
+    }
+
+    /**
+     * Termine le journal. Avec {@code complete}, une ligne de fin marque le lot
+     * comme achevé ; sinon il restera proposé à la reprise.
+     */
+    void finish(boolean complete) throws IOException {
+        // Sentinelle avant le drapeau : un écrivain qui voit finishing ne peut plus trouver
+        // la file vide sans l'avoir écrite. Pas d'interruption : elle fermerait le FileChannel
+        queue.add(complete ? END : WAKE);
+        finishing = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) throw failure;
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean dirty = false;
+        while (true) {
+            try {
+                String first = dirty
+                        ? queue.poll(FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                        : queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+            batch.removeIf(WAKE::equals);
+
+            try {
+                if (!batch.isEmpty()) {
+                    StringBuilder text = new StringBuilder(batch.size() * 96);
+                    for (String line : batch) {
+                        text.append(line).append('\n');
+                    }
+                    batch.clear();
+                    ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    dirty = true;
+                }
+                // Synchronisation groupée : un fsync couvre tous les événements de l'intervalle
+                boolean last = finishing && queue.isEmpty();
+                if (dirty && (last || System.nanoTime() - lastSync >= FSYNC_INTERVAL_MS * 1_000_000L)) {
+                    channel.force(false);
+                    lastSync = System.nanoTime();
+                    dirty = false;
+                }
+                if (last) return;
+            } catch (IOException e) {
+                failure = e; // Le lot continue sans journal : seule la reprise est perdue
+                queue.clear();
+                if (finishing) return;
+            }
+        }
+    }
+
+    // ==================== RELECTURE ====================
+
+    /** Renvoie le lot interrompu du dossier, ou null s'il n'y en a pas (ou s'il est illisible). */
+    static Recovery recover(File directory) throws IOException {
+        File journalFile = new File(directory, FILE_NAME);
+        if (!journalFile.isFile()) return null;
+
+        String text = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+        int end = text.lastIndexOf('\n'); // Une ligne sans fin de ligne a été coupée par l'arrêt
+        if (end < 0) return null;
+        String[] lines = text.substring(0, end).split("\n");
+        if (lines.length < 2 || !HEADER.equals(lines[0])) return null;
+
+        List<ConversionPreset> targets = new ArrayList<>();
+        int first = 1;
+        for (ConversionPreset target; first < lines.length && (target = parsePreset(lines[first])) != null; first++) {
+            targets.add(target);
+        }
+        if (targets.isEmpty()) return null;
+
+        Map<String, String[]> last = new LinkedHashMap<>();
+        for (int i = first; i < lines.length; i++) {
+            if (END.equals(lines[i])) return null; // Lot terminé
+            String[] fields = lines[i].split("\t", 4);
+            if (fields.length == 4) last.put(fields[3], fields);
+        }
+
+        Recovery recovery = new Recovery(targets);
+        for (String[] fields : last.values()) {
+            Entry entry;
+            AudioFileStatus status;
+            try {
+                status = AudioFileStatus.valueOf(fields[0]);
+                entry = new Entry(new File(unescape(fields[3])), Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (!entry.file.isFile()) continue;
+
+            boolean outputsPresent = true;
+            for (ConversionPreset target : targets) {
+                File output = new File(target.outputDirectory, target.getOutputFileName(entry.file));
+                outputsPresent &= output.isFile();
+                // La sortie finale n'apparaît que complète : seuls ses temporaires sont à jeter
+                if (status == AudioFileStatus.CONVERTING) {
+                    recovery.partialOutputs.addAll(AtomicOutput.leftovers(output));
+                }
+            }
+            if (status == AudioFileStatus.COMPLETED && entry.isUnchanged() && outputsPresent) {
+                recovery.completed.add(entry);
+                continue;
+            }
+            recovery.pending.add(entry.file);
+        }
+        return recovery;
+    }
+
+    /** Efface le journal d'un lot que l'utilisateur ne veut pas reprendre. */
+    static void discard(File directory) throws IOException {
+        Files.deleteIfExists(new File(directory, FILE_NAME).toPath());
+    }
+
+    // ==================== FORMAT ====================
+
+    private static String line(AudioFileStatus status, Entry entry) {
+        return status.name() + '\t' + entry.size + '\t' + entry.modified + '\t' + escape(entry.file.getAbsolutePath());
+    }
+
+    private static String presetLine(ConversionPreset preset) {
+        return "PRESET\t" + preset.outputFormat
+                + '\t' + preset.sampleRate
+                + '\t' + preset.sampleSizeInBits
+                + '\t' + preset.channelOption
+                + '\t' + preset.gain
+                + '\t' + preset.softLimit
+                + '\t' + preset.resamplerQuality.name()
+                + '\t' + escape(preset.outputDirectory.getAbsolutePath())
+                + (preset.suffix.isEmpty() && !preset.normalizes() ? "" : '\t' + preset.suffix)
+                + (preset.normalizes() ? "\t" + preset.loudnessTarget : "");
+    }
+
+    private static ConversionPreset parsePreset(String line) {
+        // Suffixe de sortie en dixième champ (lot multi-cibles), cible de normalisation en onzième
+        String[] f = line.split("\t", -1);
+        if (f.length < 9 || f.length > 11 || !"PRESET".equals(f[0])) return null;
+        try {
+            return new ConversionPreset(f[1], Float.parseFloat(f[2]), Integer.parseInt(f[3]),
+                    Integer.parseInt(f[4]), Float.parseFloat(f[5]), Boolean.parseBoolean(f[6]),
+                    ResamplerQuality.valueOf(f[7]), new File(unescape(f[8])), f.length >= 10 ? f[9] : "",
+                    f.length == 11 ? Float.parseFloat(f[10]) : Float.NaN);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Les chemins ne doivent contenir ni tabulation ni fin de ligne. */
+    private static String escape(String path) {
+        return path.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char n = text.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
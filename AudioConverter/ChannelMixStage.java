@@ -0,0 +1,62 @@
+/**
+ * Conversion du nombre de canaux : mono -> N par duplication, N -> mono par
+ * moyenne, N -> stéréo en répartissant les canaux pairs à gauche et impairs à droite.
+ */
+final class ChannelMixStage implements PcmStage {
+
+    private final int inputChannels;
+    private final int outputChannels;
+    private final PcmBlock out;
+
+    ChannelMixStage(int inputChannels, int outputChannels, int blockFrames) {
+        this.inputChannels = inputChannels;
+        this.outputChannels = outputChannels;
+        this.out = new PcmBlock(blockFrames, outputChannels);
+    }
+
+    @Override
+    public PcmBlock process(PcmBlock in) {
+        int frames = in.frames;
+        out.ensureCapacity(frames, outputChannels);
+        out.frames = frames;
+        mix(in.samples, out.samples, frames);
+        return out;
+    }
+
+    void mix(float[] src, float[] dst, int frames) {
+        int inCh = inputChannels;
+        int outCh = outputChannels;
+
+        if (inCh == 1) {
+            for (int f = 0, d = 0; f < frames; f++) {
+                float v = src[f];
+                for (int c = 0; c < outCh; c++) dst[d++] = v;
+            }
+        } else if (outCh == 1) {
+            float norm = 1f / inCh;
+            for (int f = 0, s = 0; f < frames; f++) {
+                float sum = 0;
+                for (int c = 0; c < inCh; c++) sum += src[s++];
+                dst[f] = sum * norm;
+            }
+        } else if (outCh == 2) {
+            float leftNorm = 1f / ((inCh + 1) / 2);
+            float rightNorm = 1f / (inCh / 2);
+            for (int f = 0, s = 0, d = 0; f < frames; f++) {
+                float left = 0;
+                float right = 0;
+                for (int c = 0; c < inCh; c++) {
+                    if ((c & 1) == 0) left += src[s++];
+                    else right += src[s++];
+                }
+                dst[d++] = left * leftNorm;
+                dst[d++] = right * rightNorm;
+            }
+        } else {
+            // Cas générique : canaux communs copiés, canaux supplémentaires à zéro
+            for (int f = 0, s = 0, d = 0; f < frames; f++, s += inCh) {
+                for (int c = 0; c < outCh; c++) dst[d++] = c < inCh ? src[s + c] : 0f;
+            }
+        }
+    }
+}
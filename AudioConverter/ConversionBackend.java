@@ -0,0 +1,31 @@
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Moteur de décodage branché devant le pipeline PCM. Chaque moteur annonce
+ * les extensions qu'il sait lire et livre la source sous forme de flux PCM ;
+ * rééchantillonnage, gain et écriture restent communs à tous les moteurs.
+ */
+interface ConversionBackend {
+
+    String getName();
+
+    String[] getInputExtensions();
+
+    /** Ouvre la source décodée ; le flux est fermé par l'appelant. */
+    AudioInputStream openSource(File input) throws IOException, UnsupportedAudioFileException;
+
+    default boolean canRead(File file) {
+        String name = file.getName().toLowerCase();
+        for (String ext : getInputExtensions()) {
+            if (name.endsWith("." + ext)) return true;
+        }
+        return false;
+    }
+
+    /** Arrêt du lot : libère au plus vite tout ce qui bloque un worker (processus externes...). */
+    default void cancelAll() {
+    }
+}
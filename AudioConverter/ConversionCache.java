@@ -0,0 +1,356 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache disque des fichiers convertis, adressé par contenu : la clé combine
+ * l'empreinte SHA-256 du fichier source et tous les paramètres qui
+ * déterminent la sortie (conteneur, fréquence, profondeur, canaux, gain,
+ * limiteur, rééchantillonneur). Une copie ailleurs d'un même fichier est donc
+ * reconnue. Les empreintes sont mémorisées par chemin, taille et date de
+ * modification pour ne relire un fichier qu'une fois.
+ *
+ * La taille totale est plafonnée ; la date de modification de chaque entrée
+ * sert d'ordre LRU (rafraîchie à chaque succès) et survit aux redémarrages.
+ *
+ * Le cache garde aussi l'analyse de sonie de chaque source, par empreinte :
+ * une normalisation déjà mesurée se fait en une seule passe.
+ */
+final class ConversionCache {
+
+    static final File DEFAULT_DIRECTORY = new File(System.getProperty("user.home"),
+            ".audioconverter" + File.separator + "cache");
+    static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024 * 1024;
+    private static final String FINGERPRINTS = "fingerprints.tsv";
+    private static final String ANALYSES = "loudness.tsv";
+    private static final int HASH_BUFFER = 1024 * 1024;
+    // Mémo borné (dossier surveillé des semaines durant) : au-delà, des empreintes sont oubliées
+    private static final int MAX_FINGERPRINTS = 200_000;
+
+    private final File directory;
+    private volatile long maxBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Entrées par ordre d'accès (LRU) ; protégées par le verrou de l'instance
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    // Empreintes déjà calculées : "chemin\ttaille\tdate" -> SHA-256 hexadécimal
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private volatile boolean fingerprintsDirty;
+
+    // Analyses de sonie : SHA-256 de la source -> ligne de LoudnessMeter.Analysis
+    private final Map<String, LoudnessMeter.Analysis> analyses = new ConcurrentHashMap<>();
+    private volatile boolean analysesDirty;
+
+    ConversionCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Dossier de cache inaccessible : " + directory);
+        }
+        loadEntries();
+        loadFingerprints();
+        loadAnalyses();
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    // ==================== CLÉS ====================
+
+    /**
+     * Clé du résultat de {@code input} converti avec {@code preset} ; lit le
+     * fichier s'il est inconnu. Une normalisation est identifiée par sa cible :
+     * le gain qu'elle applique ne dépend que du contenu, déjà dans la clé.
+     */
+    String key(File input, ConversionPreset preset) throws IOException {
+        String spec = preset.outputFormat.toUpperCase()
+                + '|' + Math.round(preset.sampleRate)
+                + '|' + preset.sampleSizeInBits
+                + '|' + preset.channelOption
+                + '|' + (preset.normalizes()
+                        ? "N" + Float.floatToIntBits(preset.loudnessTarget)
+                        : String.valueOf(Float.floatToIntBits(preset.gain)))
+                + '|' + preset.softLimit
+                + '|' + preset.resamplerQuality.name();
+        MessageDigest digest = sha256();
+        digest.update(fingerprint(input).getBytes(StandardCharsets.US_ASCII));
+        digest.update(spec.getBytes(StandardCharsets.US_ASCII));
+        return hex(digest.digest()) + '.' + preset.outputFormat.toLowerCase();
+    }
+
+    private String fingerprint(File input) throws IOException {
+        String memoKey = input.getAbsolutePath() + '\t' + input.length() + '\t' + input.lastModified();
+        String known = fingerprints.get(memoKey);
+        if (known != null) return known;
+
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER);
+        try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String hash = hex(digest.digest());
+        fingerprints.put(memoKey, hash);
+        fingerprintsDirty = true;
+        if (fingerprints.size() > MAX_FINGERPRINTS) {
+            // Sans ordre d'accès : des entrées quelconques, au pire relues au prochain passage
+            Iterator<String> it = fingerprints.keySet().iterator();
+            for (int excess = fingerprints.size() - MAX_FINGERPRINTS * 3 / 4; excess > 0 && it.hasNext(); excess--) {
+                it.next();
+                it.remove();
+            }
+        }
+        return hash;
+    }
+
+    // ==================== ANALYSES DE SONIE ====================
+
+    /** Analyse déjà faite d'un contenu identique à {@code input}, ou null. */
+    LoudnessMeter.Analysis analysis(File input) throws IOException {
+        return analyses.get(fingerprint(input));
+    }
+
+    void storeAnalysis(File input, LoudnessMeter.Analysis analysis) {
+        try {
+            analyses.put(fingerprint(input), analysis);
+            analysesDirty = true;
+        } catch (IOException e) {
+            // Source illisible entre-temps : l'analyse sera simplement refaite
+        }
+        if (analyses.size() > MAX_FINGERPRINTS) {
+            Iterator<String> it = analyses.keySet().iterator();
+            for (int excess = analyses.size() - MAX_FINGERPRINTS * 3 / 4; excess > 0 && it.hasNext(); excess--) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    // ==================== LECTURE / ÉCRITURE ====================
+
+    /**
+     * Recrée {@code output} depuis le cache (lien physique, sinon copie), sous
+     * un nom temporaire renommé ensuite comme toute sortie. Faux si absent.
+     */
+    boolean restore(String key, File output) {
+        Path entry = new File(directory, key).toPath();
+        synchronized (this) {
+            if (entries.get(key) == null) { // get() et non containsKey() : l'accès remonte l'entrée dans l'ordre LRU
+                misses.increment();
+                return false;
+            }
+        }
+        Path temp = AtomicOutput.siblingTemp(output);
+        try {
+            try {
+                Files.createLink(temp, entry);
+            } catch (UnsupportedOperationException | IOException e) {
+                if (e instanceof NoSuchFileException) throw (NoSuchFileException) e;
+                // Autre volume ou système sans liens physiques
+                Files.copy(entry, temp);
+            }
+            AtomicOutput.replace(temp, output);
+            entry.toFile().setLastModified(System.currentTimeMillis());
+            hits.increment();
+            return true;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Le temporaire sera retiré à la reprise du lot
+            }
+            // Entrée supprimée entre-temps (autre processus) : simple échec de cache
+            synchronized (this) {
+                Long size = entries.remove(key);
+                if (size != null) totalBytes -= size;
+            }
+            misses.increment();
+            return false;
+        }
+    }
+
+    /** Ajoute un fichier fraîchement converti ; les erreurs n'affectent pas la conversion. */
+    void store(String key, File output) {
+        Path target = new File(directory, key).toPath();
+        Path temp = new File(directory, key + ".tmp" + Thread.currentThread().getId()).toPath();
+        try {
+            try {
+                Files.createLink(temp, output.toPath());
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(output.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            AtomicOutput.replace(temp, target.toFile());
+            target.toFile().setLastModified(System.currentTimeMillis());
+            long size = Files.size(target);
+            synchronized (this) {
+                Long previous = entries.put(key, size);
+                totalBytes += size - (previous == null ? 0 : previous);
+                evict();
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Fichier temporaire orphelin, nettoyé au prochain démarrage
+            }
+        }
+    }
+
+    /** Enregistre les empreintes et analyses calculées pendant le lot. */
+    void flush() {
+        if (fingerprintsDirty) {
+            fingerprintsDirty = false;
+            if (!writeTable(FINGERPRINTS, fingerprints, hash -> hash)) {
+                fingerprintsDirty = true; // Nouvel essai au prochain lot
+            }
+        }
+        if (analysesDirty) {
+            analysesDirty = false;
+            if (!writeTable(ANALYSES, analyses, LoudnessMeter.Analysis::serialize)) {
+                analysesDirty = true;
+            }
+        }
+    }
+
+    /** Réécrit une table clé -> valeur par renommage atomique ; faux en cas d'échec. */
+    private <T> boolean writeTable(String name, Map<String, T> table, Function<T, String> format) {
+        Path file = new File(directory, name).toPath();
+        Path temp = new File(directory, name + ".tmp").toPath();
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, T> e : table.entrySet()) {
+                    writer.write(e.getKey());
+                    writer.write('\t');
+                    writer.write(format.apply(e.getValue()));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ==================== LRU ====================
+
+    /** Appelé avec le verrou de l'instance. */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> oldest = it.next();
+            new File(directory, oldest.getKey()).delete();
+            totalBytes -= oldest.getValue();
+            it.remove();
+        }
+    }
+
+    private void loadEntries() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        List<File> found = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.contains(".tmp")) {
+                file.delete(); // Reste d'une écriture interrompue
+            } else if (file.isFile() && !name.startsWith(FINGERPRINTS) && !name.startsWith(ANALYSES)) {
+                found.add(file);
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        synchronized (this) {
+            for (File file : found) {
+                entries.put(file.getName(), file.length());
+                totalBytes += file.length();
+            }
+            evict();
+        }
+    }
+
+    private void loadFingerprints() {
+        Path file = new File(directory, FINGERPRINTS).toPath();
+        if (!Files.isRegularFile(file)) return;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int split = line.lastIndexOf('\t');
+                if (split > 0) fingerprints.put(line.substring(0, split), line.substring(split + 1));
+            }
+        } catch (IOException e) {
+            fingerprints.clear(); // Mémo illisible : les fichiers seront simplement relus
+        }
+    }
+
+    private void loadAnalyses() {
+        Path file = new File(directory, ANALYSES).toPath();
+        if (!Files.isRegularFile(file)) return;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int split = line.indexOf('\t');
+                LoudnessMeter.Analysis analysis = split > 0 ? LoudnessMeter.Analysis.parse(line.substring(split + 1)) : null;
+                if (analysis != null) analyses.put(line.substring(0, split), analysis);
+            }
+        } catch (IOException e) {
+            analyses.clear(); // Fichier illisible : les sources seront réanalysées
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toujours présent dans le JDK
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,629 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Moteur de conversion commun à l'interface graphique et à la ligne de
+ * commande : pool de workers, moteurs de décodage et conversion d'un fichier.
+ * Aucune classe AWT/Swing n'est référencée ici ; les appelants reçoivent les
+ * événements par un {@link Listener} et les messages par le journal fourni.
+ */
+final class ConversionEngine {
+
+    /** Événements d'un lot, appelés depuis les threads du pool ou du collecteur. */
+    interface Listener {
+        default void jobStarted(AudioFile audioFile) {
+        }
+
+        /** {@code audioFile} est null si la tâche a échoué hors de la conversion elle-même. */
+        default void jobFinished(AudioFile audioFile, boolean success, int completed, int total) {
+        }
+
+        /** Conversion abandonnée par un arrêt : le fichier redevient en attente, sans sortie. */
+        default void jobCancelled(AudioFile audioFile) {
+        }
+    }
+
+    /** Bilan d'un lot ; les fichiers ignorés après un arrêt ne sont pas comptés. */
+    static final class BatchResult {
+        final int total;
+        final int completed;
+        final int success;
+        final int failed;
+
+        BatchResult(int total, int completed, int success, int failed) {
+            this.total = total;
+            this.completed = completed;
+            this.success = success;
+            this.failed = failed;
+        }
+
+        int skipped() {
+            return total - completed;
+        }
+    }
+
+    private final ConversionPool pool;
+    private final List<ConversionBackend> backends;
+    private final Consumer<String> log;
+    private final Set<AudioFile> activeJobs = ConcurrentHashMap.newKeySet();
+    private final Map<AudioFile, Thread> workers = new ConcurrentHashMap<>();
+    private final ConversionMetrics metrics = new ConversionMetrics();
+    private volatile ConversionCache cache;
+    private volatile boolean stopRequested;
+    private final AtomicInteger standaloneSubmitted = new AtomicInteger();
+    private final AtomicInteger standaloneCompleted = new AtomicInteger();
+    // Branches des fichiers multi-cibles : pas de file, le nombre de threads est réservé d'avance
+    // (voir reserveBranches) ; le plafond laisse une marge aux threads qui finissent de rendre la main
+    private final ExecutorService branchPool = new ThreadPoolExecutor(0, 2 * ConversionPool.MAX_THREADS,
+            30, TimeUnit.SECONDS, new SynchronousQueue<>(), ConversionPool.namedThreadFactory("conversion-branch"));
+    private final Object branchLock = new Object();
+    private int branchThreads; // Réservés, sous branchLock
+
+    ConversionEngine(int threadCount, int maxExternalProcesses, Consumer<String> log) {
+        this.log = log;
+        this.pool = new ConversionPool(threadCount, metrics::bytesRead);
+        this.metrics.setGauges(() -> pool.getQueue().size(), pool::getActiveCount);
+
+        // Java Sound en premier pour ses formats natifs, ffmpeg pour le reste s'il est installé
+        List<ConversionBackend> list = new ArrayList<>();
+        list.add(new JavaSoundBackend());
+        FfmpegBackend ffmpeg = FfmpegBackend.locate(maxExternalProcesses);
+        if (ffmpeg != null) {
+            list.add(ffmpeg);
+        }
+        this.backends = Collections.unmodifiableList(list);
+    }
+
+    ConversionPool getPool() {
+        return pool;
+    }
+
+    ConversionMetrics getMetrics() {
+        return metrics;
+    }
+
+    List<ConversionBackend> getBackends() {
+        return backends;
+    }
+
+    /** Fichiers en cours de conversion, pour le suivi de progression. */
+    Set<AudioFile> getActiveJobs() {
+        return Collections.unmodifiableSet(activeJobs);
+    }
+
+    ConversionBackend findBackend(File file) {
+        for (ConversionBackend backend : backends) {
+            if (backend.canRead(file)) return backend;
+        }
+        return null;
+    }
+
+    String[] getSupportedInputFormats() {
+        Set<String> formats = new LinkedHashSet<>();
+        for (ConversionBackend backend : backends) {
+            formats.addAll(Arrays.asList(backend.getInputExtensions()));
+        }
+        return formats.toArray(new String[0]);
+    }
+
+    /** Cache des conversions déjà faites ; null pour toujours convertir. */
+    void setCache(ConversionCache cache) {
+        this.cache = cache;
+    }
+
+    ConversionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Arrête le lot : les fichiers pas encore commencés sont ignorés, ceux en
+     * cours sont interrompus au prochain bloc (leurs temporaires sont supprimés
+     * et leurs fichiers refermés), les décodeurs externes sont tués.
+     */
+    void requestStop() {
+        stopRequested = true;
+        for (Thread worker : workers.values()) {
+            worker.interrupt();
+        }
+        for (ConversionBackend backend : backends) {
+            backend.cancelAll();
+        }
+    }
+
+    boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    void shutdown() {
+        pool.shutdown();
+        branchPool.shutdown();
+    }
+
+    // ==================== LOT ====================
+
+    /** Convertit les fichiers en parallèle et bloque jusqu'à la fin du lot. */
+    BatchResult runBatch(List<AudioFile> jobs, ConversionPreset preset, Listener listener) {
+        return runBatch(jobs, Collections.singletonList(preset), Collections.emptyList(), listener);
+    }
+
+    /**
+     * Variante multi-cibles, et pour la reprise d'un lot interrompu :
+     * {@code carriedOver} liste les fichiers déjà convertis, recopiés dans le
+     * nouveau journal. Chaque fichier est décodé une fois pour toutes ses
+     * cibles (voir {@link ConversionPreset#distinctTargets}).
+     */
+    BatchResult runBatch(List<AudioFile> jobs, List<ConversionPreset> targets,
+                         List<BatchJournal.Entry> carriedOver, Listener listener) {
+        stopRequested = false;
+        int total = jobs.size();
+        BatchJournal journal = null;
+        try {
+            journal = BatchJournal.start(targets, jobs, carriedOver);
+        } catch (IOException e) {
+            log.accept("Journal de reprise indisponible : " + e.getMessage());
+        }
+        BatchJournal batchJournal = journal;
+        int completed = 0;
+        int success = 0;
+        int failed = 0;
+
+        // Chaque fichier est soumis au pool, les résultats sont collectés dans l'ordre de fin
+        CompletionService<AudioFile> completionService = new ExecutorCompletionService<>(pool);
+        for (AudioFile audioFile : jobs) {
+            completionService.submit(() -> runJob(audioFile, targets, batchJournal, listener));
+        }
+
+        // Seul ce thread met à jour les compteurs : pas de course entre workers
+        for (int i = 0; i < total; i++) {
+            AudioFile finished;
+            boolean result;
+            try {
+                finished = completionService.take().get();
+                if (finished == null) continue;
+                result = finished.status() == AudioFileStatus.COMPLETED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                finished = null; // Erreur fatale hors de convert() : fichier compté en échec
+                result = false;
+            }
+
+            if (result) {
+                success++;
+            } else {
+                failed++;
+            }
+            completed++;
+            metrics.recordFile(result);
+            listener.jobFinished(finished, result, completed, total);
+        }
+
+        ConversionCache batchCache = cache;
+        if (batchCache != null) batchCache.flush();
+
+        // Lot arrêté ou interrompu : le journal reste ouvert à la reprise
+        if (journal != null) {
+            try {
+                journal.finish(completed == total);
+            } catch (IOException e) {
+                log.accept("Journal de reprise incomplet : " + e.getMessage());
+            }
+        }
+        return new BatchResult(total, completed, success, failed);
+    }
+
+    /**
+     * Conversion d'un fichier hors lot (dossier surveillé) : même traitement
+     * qu'un fichier de lot, sans journal de reprise. Le future donne le
+     * fichier terminé, ou null s'il a été ignoré ou annulé ; {@code completed}
+     * et {@code total} de {@link Listener#jobFinished} comptent les fichiers
+     * hors lot terminés et soumis depuis le démarrage.
+     */
+    CompletableFuture<AudioFile> submit(AudioFile audioFile, List<ConversionPreset> targets, Listener listener) {
+        int total = standaloneSubmitted.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            AudioFile finished = runJob(audioFile, targets, null, listener);
+            if (finished != null) {
+                boolean result = finished.status() == AudioFileStatus.COMPLETED;
+                metrics.recordFile(result);
+                listener.jobFinished(finished, result, standaloneCompleted.incrementAndGet(), total);
+            }
+            return finished;
+        }, pool);
+    }
+
+    /** Annule une demande d'arrêt : les prochaines conversions hors lot sont de nouveau acceptées. */
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    /** Tâche d'un fichier sur un worker ; null si le fichier est ignoré ou annulé. */
+    private AudioFile runJob(AudioFile audioFile, List<ConversionPreset> targets, BatchJournal batchJournal,
+                             Listener listener) {
+        if (stopRequested) return null; // Arrêt demandé : fichier ignoré
+        if (!audioFile.begin()) {
+            log.accept("Déjà en cours de conversion : " + audioFile.file.getName());
+            return null;
+        }
+
+        if (batchJournal != null) batchJournal.record(audioFile, AudioFileStatus.CONVERTING);
+        activeJobs.add(audioFile);
+        workers.put(audioFile, Thread.currentThread());
+        listener.jobStarted(audioFile);
+        // Arrêt demandé entre le test ci-dessus et l'enregistrement du worker
+        if (stopRequested) Thread.currentThread().interrupt();
+
+        List<File> outputs;
+        try {
+            outputs = convertFiles(audioFile, targets);
+        } catch (Error e) {
+            audioFile.finish(AudioFile.State.FAILED); // Pas de fichier bloqué « en cours »
+            throw e;
+        } finally {
+            workers.remove(audioFile);
+            Thread.interrupted(); // Le thread retourne au pool sans interruption en attente
+            audioFile.progress.finish();
+            activeJobs.remove(audioFile);
+        }
+        if (outputs == null && stopRequested) {
+            // Annulé en cours de route : compté comme ignoré, à refaire à la reprise
+            audioFile.finish(AudioFile.State.PENDING);
+            if (batchJournal != null) batchJournal.record(audioFile, AudioFileStatus.PENDING);
+            listener.jobCancelled(audioFile);
+            return null;
+        }
+        AudioFile.State state = outputs != null ? AudioFile.State.completed(outputs) : AudioFile.State.FAILED;
+        audioFile.finish(state);
+        if (batchJournal != null) batchJournal.record(audioFile, state.status);
+        return audioFile;
+    }
+
+    // ==================== CONVERSION ====================
+
+    boolean convert(AudioFile audioFile, ConversionPreset preset) {
+        return convertFile(audioFile, preset) != null;
+    }
+
+    /** Convertit un fichier et renvoie sa sortie, ou null en cas d'échec ou d'annulation. */
+    File convertFile(AudioFile audioFile, ConversionPreset preset) {
+        List<File> outputs = convertFiles(audioFile, Collections.singletonList(preset));
+        return outputs != null ? outputs.get(0) : null;
+    }
+
+    /**
+     * Convertit un fichier vers chaque cible et renvoie les sorties dans
+     * l'ordre des cibles, ou null si l'une d'elles a échoué (les autres
+     * sorties restent sur le disque) ou si la conversion est annulée. Les
+     * cibles sans copie directe ni entrée en cache partagent un décodage
+     * unique de la source, qui mesure aussi sa sonie si elle est inconnue.
+     */
+    List<File> convertFiles(AudioFile audioFile, List<ConversionPreset> targets) {
+        AudioInputStream sourceStream = null;
+
+        try {
+            log.accept("Conversion du fichier : " + audioFile.file.getName());
+
+            File[] outputs = new File[targets.size()];
+            String[] cacheKeys = new String[targets.size()];
+            List<Integer> remaining = new ArrayList<>(targets.size());
+            ConversionCache jobCache = cache;
+            for (int i = 0; i < targets.size(); i++) {
+                ConversionPreset preset = targets.get(i);
+                File outputFile = new File(preset.outputDirectory, preset.getOutputFileName(audioFile.file));
+
+                // Voie rapide : changement de conteneur seul, la charge PCM est recopiée
+                if (tryRewrap(audioFile.file, outputFile, preset.getFileType(), preset, audioFile.progress)) {
+                    log.accept("Succès (copie directe) : " + outputFile.getName()
+                            + " (" + TextFormats.formatFileSize(outputFile.length()) + ")");
+                    outputs[i] = outputFile;
+                    continue;
+                }
+
+                // Même contenu déjà converti avec les mêmes réglages : recopie depuis le cache
+                if (jobCache != null) {
+                    try {
+                        cacheKeys[i] = jobCache.key(audioFile.file, preset);
+                    } catch (IOException e) {
+                        log.accept("Cache ignoré pour " + audioFile.file.getName() + " : " + e.getMessage());
+                    }
+                    if (cacheKeys[i] != null && jobCache.restore(cacheKeys[i], outputFile)) {
+                        log.accept("Succès (cache) : " + outputFile.getName()
+                                + " (" + TextFormats.formatFileSize(outputFile.length()) + ")");
+                        outputs[i] = outputFile;
+                        continue;
+                    }
+                }
+                remaining.add(i);
+            }
+            if (remaining.isEmpty()) return Arrays.asList(outputs);
+
+            // Normalisation : gain tiré de l'analyse en cache, sinon d'une passe d'analyse préalable
+            List<ConversionPreset> presets = new ArrayList<>(targets);
+            LoudnessMeter.Analysis analysis = knownAnalysis(audioFile.file, jobCache);
+            for (int i : remaining) {
+                ConversionPreset preset = targets.get(i);
+                if (!preset.normalizes()) continue;
+                if (analysis == null) analysis = analyze(audioFile, jobCache);
+                float gain = analysis.normalizationGain(preset.loudnessTarget, preset.softLimit);
+                presets.set(i, preset.withGain(gain));
+                log.accept(String.format(Locale.ROOT, "Normalisation à %.1f LUFS : gain %+.1f dB",
+                        preset.loudnessTarget, 20 * Math.log10(gain)));
+            }
+
+            // Long enregistrement et cœurs inoccupés : une seule cible, convertie par segments parallèles
+            if (remaining.size() == 1) {
+                int i = remaining.get(0);
+                File output = trySegments(audioFile, presets.get(i), cacheKeys[i]);
+                if (output != null) {
+                    outputs[i] = output;
+                    return Arrays.asList(outputs);
+                }
+            }
+
+            // Lecture du fichier source par le premier moteur qui sait le décoder
+            ConversionBackend backend = findBackend(audioFile.file);
+            if (backend == null) {
+                throw new UnsupportedAudioFileException("Aucun moteur ne sait lire ce format");
+            }
+
+            // Plusieurs cibles : une branche par cible si les workers libres les couvrent, sinon une passe par cible
+            boolean fanOut = remaining.size() > 1 && reserveBranches(remaining.size());
+            List<List<Integer>> passes = new ArrayList<>();
+            if (fanOut) {
+                passes.add(remaining);
+            } else {
+                for (int i : remaining) passes.add(Collections.singletonList(i));
+            }
+            try {
+                for (List<Integer> pass : passes) {
+                    sourceStream = backend.openSource(audioFile.file);
+                    AudioFormat sourceFormat = sourceStream.getFormat();
+                    long sourceFrames = sourceStream.getFrameLength();
+                    audioFile.progress.start(sourceFrames == AudioSystem.NOT_SPECIFIED
+                            ? -1 : sourceFrames * sourceFormat.getFrameSize(), sourceFormat.getSampleRate());
+                    log.accept("Format source : " + sourceFormat + " [" + backend.getName() + "]");
+
+                    // Décodage unique par passe, transformations en flux, encodage unique
+                    PcmDecoder decoder = new PcmDecoder(PcmDecoder.decodable(sourceStream), PcmPipeline.BLOCK_FRAMES);
+                    decoder.setProgress(audioFile.progress);
+                    decoder.setMetrics(metrics);
+                    // Sonie mesurée au passage : une normalisation ultérieure n'aura plus qu'une passe
+                    LoudnessMeter meter = null;
+                    if (analysis == null) {
+                        meter = new LoudnessMeter(decoder.getFormat().getSampleRate(), decoder.getFormat().getChannels());
+                        decoder.setMeter(meter);
+                    }
+
+                    if (pass.size() == 1) {
+                        int i = pass.get(0);
+                        outputs[i] = writeTarget(decoder, presets.get(i), audioFile, cacheKeys[i]);
+                    } else if (!fanOut(audioFile, decoder, pass, presets, targets, cacheKeys, outputs)) {
+                        return null;
+                    }
+                    // La source a été lue jusqu'au bout : la mesure est complète
+                    if (meter != null) analysis = recordAnalysis(audioFile, meter, jobCache);
+                    sourceStream.close();
+                    sourceStream = null;
+                }
+            } finally {
+                if (fanOut) releaseBranches(remaining.size());
+            }
+            return Arrays.asList(outputs);
+
+        } catch (Exception e) {
+            if (stopRequested) {
+                log.accept("Conversion annulée : " + audioFile.file.getName());
+                return null;
+            }
+            log.accept("Erreur sur " + audioFile.file.getName() + " : " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } finally {
+            // Fermeture propre des streams
+            try {
+                if (sourceStream != null) sourceStream.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // ==================== DIFFUSION ====================
+
+    /**
+     * Réserve un thread par branche si les workers inoccupés, moins les
+     * branches déjà en cours, en laissent assez : toutes les branches d'un
+     * fichier avancent ensemble, et le total reste dans la limite du pool.
+     */
+    private boolean reserveBranches(int count) {
+        synchronized (branchLock) {
+            if (pool.getParallelism() - pool.getActiveCount() - branchThreads < count) return false;
+            branchThreads += count;
+            return true;
+        }
+    }
+
+    private void releaseBranches(int count) {
+        synchronized (branchLock) {
+            branchThreads -= count;
+        }
+    }
+
+    /** Diffuse les blocs décodés à une branche par cible de {@code pass} ; faux si l'une a échoué. */
+    private boolean fanOut(AudioFile audioFile, PcmDecoder decoder, List<Integer> pass, List<ConversionPreset> presets,
+                           List<ConversionPreset> targets, String[] cacheKeys, File[] outputs) throws IOException {
+        List<PcmFanOut.Branch> branches = new ArrayList<>(pass.size());
+        for (int i : pass) {
+            branches.add(source -> outputs[i] = writeTarget(source, presets.get(i), audioFile, cacheKeys[i]));
+        }
+        List<Throwable> errors = PcmFanOut.run(decoder, branches, branchPool);
+        boolean failed = false;
+        for (int b = 0; b < errors.size(); b++) {
+            Throwable error = errors.get(b);
+            if (error == null) continue;
+            failed = true;
+            ConversionPreset preset = targets.get(pass.get(b));
+            log.accept("Erreur sur " + audioFile.file.getName() + " -> "
+                    + preset.getOutputFileName(audioFile.file) + " : " + error.getMessage());
+            error.printStackTrace();
+        }
+        return !failed;
+    }
+
+    // ==================== SONIE ====================
+
+    private LoudnessMeter.Analysis knownAnalysis(File input, ConversionCache jobCache) {
+        if (jobCache == null) return null;
+        try {
+            return jobCache.analysis(input);
+        } catch (IOException e) {
+            return null; // Empreinte impossible : la source sera mesurée
+        }
+    }
+
+    /** Passe de décodage seule, pour normaliser une source jamais mesurée. */
+    private LoudnessMeter.Analysis analyze(AudioFile audioFile, ConversionCache jobCache)
+            throws IOException, UnsupportedAudioFileException {
+        ConversionBackend backend = findBackend(audioFile.file);
+        if (backend == null) {
+            throw new UnsupportedAudioFileException("Aucun moteur ne sait lire ce format");
+        }
+        log.accept("Analyse de sonie : " + audioFile.file.getName());
+        try (AudioInputStream stream = backend.openSource(audioFile.file)) {
+            PcmDecoder decoder = new PcmDecoder(PcmDecoder.decodable(stream), PcmPipeline.BLOCK_FRAMES);
+            AudioFormat format = decoder.getFormat();
+            long frames = decoder.getFrameLength();
+            audioFile.progress.start(frames == AudioSystem.NOT_SPECIFIED
+                    ? -1 : frames * format.getFrameSize(), format.getSampleRate());
+            decoder.setProgress(audioFile.progress);
+            LoudnessMeter meter = new LoudnessMeter(format.getSampleRate(), format.getChannels());
+            decoder.setMeter(meter);
+
+            PcmBlock block = new PcmBlock(PcmPipeline.BLOCK_FRAMES, format.getChannels());
+            while (decoder.read(block) > 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Conversion annulée");
+                }
+            }
+            return recordAnalysis(audioFile, meter, jobCache);
+        }
+    }
+
+    private LoudnessMeter.Analysis recordAnalysis(AudioFile audioFile, LoudnessMeter meter, ConversionCache jobCache) {
+        LoudnessMeter.Analysis analysis = meter.result();
+        log.accept("Sonie de " + audioFile.file.getName() + " : " + analysis);
+        if (jobCache != null) jobCache.storeAnalysis(audioFile.file, analysis);
+        return analysis;
+    }
+
+    // ==================== ÉCRITURE ====================
+
+    /** Transforme, encode et écrit une cible à partir des blocs décodés ; renvoie la sortie. */
+    private File writeTarget(PcmPipeline.Source source, ConversionPreset preset, AudioFile audioFile,
+                             String cacheKey) throws IOException {
+        AudioFileFormat.Type fileType = preset.getFileType();
+        File outputFile = new File(preset.outputDirectory, preset.getOutputFileName(audioFile.file));
+
+        // Format cible directement dans l'ordre d'octets natif du conteneur
+        AudioFormat targetFormat = PcmCodec.containerFormat(fileType, preset.sampleRate,
+                preset.sampleSizeInBits, preset.getChannels(source.getFormat()));
+        log.accept("Format cible : " + targetFormat + " -> " + outputFile.getName());
+        if (preset.gain != 1f) {
+            log.accept("Volume appliqué : " + Math.round(preset.gain * 100) + " %");
+        }
+
+        PcmPipeline pipeline = PcmPipeline.create(source, targetFormat, preset.resamplerQuality,
+                preset.gain, preset.softLimit);
+        pipeline.setMetrics(metrics);
+
+        // Écriture dans un temporaire dimensionné d'avance, puis renommage atomique
+        PcmFileWriter.write(pipeline, fileType, targetFormat, pipeline.getExpectedFrames(), outputFile,
+                metrics);
+        ConversionCache jobCache = cache;
+        if (cacheKey != null && jobCache != null) {
+            jobCache.store(cacheKey, outputFile);
+        }
+
+        log.accept("Succès : " + outputFile.getName() + " (" + TextFormats.formatFileSize(outputFile.length()) + ")");
+        return outputFile;
+    }
+
+    /**
+     * Conversion par {@link PcmSegments} si la source est un long fichier PCM
+     * et qu'au moins un autre worker est libre (aucun fichier en attente) ; les
+     * segments occupent les workers libres, pas plus. Renvoie null pour passer
+     * par le pipeline séquentiel.
+     */
+    private File trySegments(AudioFile audioFile, ConversionPreset preset, String cacheKey)
+            throws IOException, UnsupportedAudioFileException {
+        // Workers libres hors branches en cours, plus celui-ci qui attend la fin des segments
+        int threads;
+        synchronized (branchLock) {
+            threads = pool.getParallelism() - pool.getActiveCount() - branchThreads + 1;
+        }
+        if (threads < 2 || !pool.getQueue().isEmpty()) return null;
+        AudioFileLayout layout = AudioFileLayout.probe(audioFile.file);
+        if (!PcmSegments.isEligible(layout)) return null;
+
+        AudioFileFormat.Type fileType = preset.getFileType();
+        File outputFile = new File(preset.outputDirectory, preset.getOutputFileName(audioFile.file));
+        AudioFormat targetFormat = PcmCodec.containerFormat(fileType, preset.sampleRate,
+                preset.sampleSizeInBits, preset.getChannels(layout.format));
+        log.accept("Format source : " + layout.format + " [segments x" + threads + "]");
+        log.accept("Format cible : " + targetFormat + " -> " + outputFile.getName());
+        if (preset.gain != 1f) {
+            log.accept("Volume appliqué : " + Math.round(preset.gain * 100) + " %");
+        }
+
+        PcmSegments.convert(audioFile.file, layout, outputFile, fileType, targetFormat, preset.resamplerQuality,
+                preset.gain, preset.softLimit, threads, audioFile.progress, metrics);
+        ConversionCache jobCache = cache;
+        if (cacheKey != null && jobCache != null) {
+            jobCache.store(cacheKey, outputFile);
+        }
+        log.accept("Succès : " + outputFile.getName() + " (" + TextFormats.formatFileSize(outputFile.length()) + ")");
+        return outputFile;
+    }
+
+    private boolean tryRewrap(File input, File output, AudioFileFormat.Type fileType,
+                              ConversionPreset preset, JobProgress progress)
+            throws IOException, UnsupportedAudioFileException {
+        if (preset.gain != 1f || preset.normalizes()) return false;
+
+        AudioFileLayout layout = AudioFileLayout.probe(input);
+        if (layout == null) return false;
+
+        AudioFormat targetFormat = PcmCodec.containerFormat(fileType, preset.sampleRate,
+                preset.sampleSizeInBits, preset.getChannels(layout.format));
+        if (!PcmRewrap.isRewrap(layout.format, targetFormat)) return false;
+
+        PcmRewrap.copy(input, layout, output, fileType, targetFormat, progress, metrics);
+        return true;
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journal de conversion appelable depuis n'importe quel thread. Chaque ligne
+ * horodatée part dans deux anneaux : l'un vidé par l'interface à cadence fixe,
+ * l'autre par un thread d'écriture vers un fichier tournant
+ * ({@code AudioConverter.log}, puis {@code .1.log} ... {@code .4.log}).
+ */
+final class ConversionLog {
+
+    static final String FILE_NAME = "AudioConverter";
+    private static final int DISPLAY_CAPACITY = 8 * 1024;
+    private static final int FILE_CAPACITY = 64 * 1024;
+    private static final long MAX_FILE_BYTES = 8L * 1024 * 1024;
+    private static final int KEPT_FILES = 5;
+    private static final int LINES_PER_WRITE = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LogRing display = new LogRing(DISPLAY_CAPACITY);
+    private final LogRing file = new LogRing(FILE_CAPACITY);
+    private final Thread writerThread;
+    private volatile File directory;
+    private volatile boolean closed;
+
+    ConversionLog(File directory) {
+        this.directory = directory;
+        this.writerThread = new Thread(this::writeLoop, "log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        // Les dernières lignes ne doivent pas rester dans l'anneau à la fermeture
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-flush"));
+    }
+
+    void log(String message) {
+        LocalDateTime now = LocalDateTime.now();
+        display.offer("[" + now.format(TIME) + "] " + message);
+        file.offer("[" + now.format(DATE_TIME) + "] " + message);
+    }
+
+    /** Anneau lu par l'interface (un seul lecteur : l'EDT). */
+    LogRing display() {
+        return display;
+    }
+
+    /** Le fichier suit le dossier de sortie ; il est rouvert à la prochaine écriture. */
+    void setDirectory(File directory) {
+        this.directory = directory;
+        LockSupport.unpark(writerThread);
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== ÉCRITURE ====================
+
+    private void writeLoop() {
+        Writer out = null;
+        File openedIn = null;
+        long written = 0;
+        StringBuilder chunk = new StringBuilder(64 * 1024);
+
+        while (true) {
+            boolean last = closed;
+            chunk.setLength(0);
+            file.drain(line -> chunk.append(line).append(System.lineSeparator()), LINES_PER_WRITE);
+            long dropped = file.takeDropped();
+            if (dropped > 0) {
+                chunk.append("... ").append(dropped).append(" ligne(s) perdue(s), journal saturé")
+                        .append(System.lineSeparator());
+            }
+
+            if (chunk.length() > 0) {
+                try {
+                    File target = directory;
+                    if (out == null || !target.equals(openedIn) || written >= MAX_FILE_BYTES) {
+                        closeQuietly(out);
+                        out = null;
+                        if (written >= MAX_FILE_BYTES && target.equals(openedIn)) {
+                            rotate(target);
+                        }
+                        out = open(target);
+                        openedIn = target;
+                        written = new File(target, FILE_NAME + ".log").length();
+                    }
+                    out.write(chunk.toString());
+                    written += chunk.length();
+                } catch (IOException e) {
+                    // Disque plein ou dossier supprimé : on réessaiera au prochain passage
+                    closeQuietly(out);
+                    out = null;
+                }
+            } else if (out != null) {
+                try {
+                    out.flush(); // Rien de neuf : le fichier est mis à jour pendant les pauses
+                } catch (IOException e) {
+                    closeQuietly(out);
+                    out = null;
+                }
+            }
+
+            if (chunk.length() == 0) {
+                if (last) break;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        closeQuietly(out);
+    }
+
+    private static Writer open(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Dossier inaccessible : " + directory);
+        }
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(
+                new File(directory, FILE_NAME + ".log").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /** AudioConverter.log devient .1.log, .1 devient .2... ; le plus ancien est écrasé. */
+    private static void rotate(File directory) throws IOException {
+        for (int i = KEPT_FILES - 1; i >= 1; i--) {
+            File from = new File(directory, i == 1 ? FILE_NAME + ".log" : FILE_NAME + "." + (i - 1) + ".log");
+            File to = new File(directory, FILE_NAME + "." + i + ".log");
+            if (from.exists()) {
+                Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void closeQuietly(Writer writer) {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // Fermeture au mieux
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Mesures vivantes du moteur : compteurs cumulés ({@link LongAdder}, sans
+ * contention entre workers), histogrammes de latence par étape et jauges du
+ * pool lues à la demande. Les workers n'écrivent qu'une fois par bloc ; les
+ * débits se calculent entre deux instantanés.
+ */
+final class ConversionMetrics {
+
+    /** Étapes chronométrées à chaque bloc. */
+    enum Stage {
+        DECODE("decode"), TRANSFORM("transform"), ENCODE("encode"), WRITE("write");
+
+        final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder framesRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder audioMicros = new LongAdder();
+    private final LongAdder filesSucceeded = new LongAdder();
+    private final LongAdder filesFailed = new LongAdder();
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private volatile IntSupplier queueDepth = () -> 0;
+    private volatile IntSupplier activeWorkers = () -> 0;
+
+    ConversionMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    void setGauges(IntSupplier queueDepth, IntSupplier activeWorkers) {
+        this.queueDepth = queueDepth;
+        this.activeWorkers = activeWorkers;
+    }
+
+    void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /** Données source consommées ; la durée audio correspondante alimente le facteur temps réel. */
+    void recordRead(long bytes, long frames, float sampleRate) {
+        bytesRead.add(bytes);
+        framesRead.add(frames);
+        if (sampleRate > 0) {
+            audioMicros.add((long) (frames * 1_000_000.0 / sampleRate));
+        }
+    }
+
+    void recordWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    void recordFile(boolean success) {
+        (success ? filesSucceeded : filesFailed).increment();
+    }
+
+    /** Octets source lus depuis le démarrage ; lu par le réglage automatique du pool. */
+    long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] copies = new LatencyHistogram.Snapshot[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            copies[i] = stages[i].snapshot();
+        }
+        return new Snapshot(System.nanoTime() - startNanos, framesRead.sum(), bytesRead.sum(),
+                bytesWritten.sum(), audioMicros.sum(), filesSucceeded.sum(), filesFailed.sum(),
+                queueDepth.getAsInt(), activeWorkers.getAsInt(), copies);
+    }
+
+    /** Valeurs figées à un instant ; les débits s'obtiennent par rapport à un instantané précédent. */
+    static final class Snapshot {
+        final long uptimeNanos;
+        final long framesRead;
+        final long bytesRead;
+        final long bytesWritten;
+        final long audioMicros;
+        final long filesSucceeded;
+        final long filesFailed;
+        final int queueDepth;
+        final int activeWorkers;
+        private final LatencyHistogram.Snapshot[] stages;
+
+        private Snapshot(long uptimeNanos, long framesRead, long bytesRead, long bytesWritten, long audioMicros,
+                         long filesSucceeded, long filesFailed, int queueDepth, int activeWorkers,
+                         LatencyHistogram.Snapshot[] stages) {
+            this.uptimeNanos = uptimeNanos;
+            this.framesRead = framesRead;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.audioMicros = audioMicros;
+            this.filesSucceeded = filesSucceeded;
+            this.filesFailed = filesFailed;
+            this.queueDepth = queueDepth;
+            this.activeWorkers = activeWorkers;
+            this.stages = stages;
+        }
+
+        LatencyHistogram.Snapshot stage(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+
+        /** Secondes écoulées depuis {@code previous} (depuis le démarrage s'il est null). */
+        double seconds(Snapshot previous) {
+            return (uptimeNanos - (previous == null ? 0 : previous.uptimeNanos)) / 1e9;
+        }
+
+        double framesPerSecond(Snapshot previous) {
+            return rate(framesRead - (previous == null ? 0 : previous.framesRead), previous);
+        }
+
+        double bytesReadPerSecond(Snapshot previous) {
+            return rate(bytesRead - (previous == null ? 0 : previous.bytesRead), previous);
+        }
+
+        double bytesWrittenPerSecond(Snapshot previous) {
+            return rate(bytesWritten - (previous == null ? 0 : previous.bytesWritten), previous);
+        }
+
+        /** Secondes d'audio traitées par seconde, tous workers confondus. */
+        double realtimeFactor(Snapshot previous) {
+            return rate(audioMicros - (previous == null ? 0 : previous.audioMicros), previous) / 1e6;
+        }
+
+        private double rate(long delta, Snapshot previous) {
+            double seconds = seconds(previous);
+            return seconds > 0 ? delta / seconds : 0;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Pool de conversion dont le parallélisme peut être modifié pendant un lot.
+ * Les conversions en cours ne sont jamais interrompues : un pool réduit
+ * libère ses threads excédentaires lorsqu'ils redeviennent inactifs.
+ *
+ * En mode automatique, le pool mesure le débit (octets source lus par
+ * seconde, relevés bloc par bloc) et l'attente disque (part du temps occupé
+ * des workers non passée sur le CPU) puis ajoute ou retire un worker à chaque
+ * fenêtre de mesure (montée de colline). Le temps CPU compte aussi les
+ * threads qui travaillent pour un worker (segments, branches multi-cibles) :
+ * un worker qui les attend n'est pas pris pour un worker bloqué sur le disque.
+ */
+class ConversionPool extends ThreadPoolExecutor {
+
+    static final int MAX_THREADS = 64;
+
+    private static final long TUNING_PERIOD_MS = 2000;
+    private static final double IO_BOUND_WAIT_RATIO = 0.3;
+    private static final double SIGNIFICANT_CHANGE = 0.05;
+    // Threads dont le temps CPU est compté : workers, segments (PcmSegments) et branches (PcmFanOut)
+    private static final String[] MEASURED_THREADS = {"conversion-worker-", "conversion-segment-", "conversion-branch-"};
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported;
+    private final LongSupplier bytesRead;
+
+    // Temps occupé des workers : intégrale du nombre de tâches en cours, sous busyLock
+    private final Object busyLock = new Object();
+    private int runningJobs;
+    private long busyChangedAt = System.nanoTime();
+    private long busyNanos;
+
+    // Relevés de la fenêtre précédente, propres au thread du tuner
+    private long lastBytesRead;
+    private final Map<Long, Long> lastThreadCpu = new HashMap<>();
+
+    private final ScheduledExecutorService tuner;
+    private volatile boolean autoTuning = false;
+    private double lastThroughput = -1;
+    private int direction = 0;
+
+    /** @param bytesRead octets source lus depuis le démarrage, tous fichiers confondus */
+    ConversionPool(int parallelism, LongSupplier bytesRead) {
+        super(clamp(parallelism), clamp(parallelism), 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), namedThreadFactory("conversion-worker"));
+        this.bytesRead = bytesRead;
+
+        boolean cpuTime = threadBean.isCurrentThreadCpuTimeSupported();
+        if (cpuTime && !threadBean.isThreadCpuTimeEnabled()) {
+            try {
+                threadBean.setThreadCpuTimeEnabled(true);
+            } catch (UnsupportedOperationException | SecurityException e) {
+                cpuTime = false;
+            }
+        }
+        cpuTimeSupported = cpuTime;
+
+        tuner = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("conversion-tuner"));
+        tuner.scheduleAtFixedRate(this::tune, TUNING_PERIOD_MS, TUNING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Change le nombre de workers sans toucher aux conversions en cours. */
+    synchronized void setParallelism(int parallelism) {
+        int target = clamp(parallelism);
+        if (target > getMaximumPoolSize()) {
+            setMaximumPoolSize(target);
+            setCorePoolSize(target);
+        } else {
+            setCorePoolSize(target);
+            setMaximumPoolSize(target);
+        }
+    }
+
+    int getParallelism() {
+        return getCorePoolSize();
+    }
+
+    void setAutoTuning(boolean enabled) {
+        synchronized (this) {
+            lastThroughput = -1;
+            direction = 0;
+        }
+        autoTuning = enabled;
+    }
+
+    boolean isAutoTuning() {
+        return autoTuning;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        changeRunningJobs(1);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        changeRunningJobs(-1);
+        super.afterExecute(r, t);
+    }
+
+    private void changeRunningJobs(int delta) {
+        synchronized (busyLock) {
+            long now = System.nanoTime();
+            busyNanos += runningJobs * (now - busyChangedAt);
+            busyChangedAt = now;
+            runningJobs += delta;
+        }
+    }
+
+    /** Temps occupé des workers depuis le relevé précédent, conversions en cours comprises. */
+    private long takeBusyNanos() {
+        synchronized (busyLock) {
+            long now = System.nanoTime();
+            long busy = busyNanos + runningJobs * (now - busyChangedAt);
+            busyChangedAt = now;
+            busyNanos = 0;
+            return busy;
+        }
+    }
+
+    /** Temps CPU des threads de conversion depuis le relevé précédent ; les threads disparus sont oubliés. */
+    private long takeCpuNanos() {
+        if (!cpuTimeSupported) return 0;
+        long total = 0;
+        Map<Long, Long> seen = new HashMap<>();
+        for (ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds())) {
+            if (info == null || !isMeasured(info.getThreadName())) continue;
+            long cpu = threadBean.getThreadCpuTime(info.getThreadId());
+            if (cpu < 0) continue; // Terminé entre-temps
+            total += cpu - lastThreadCpu.getOrDefault(info.getThreadId(), 0L);
+            seen.put(info.getThreadId(), cpu);
+        }
+        lastThreadCpu.clear();
+        lastThreadCpu.putAll(seen);
+        return total;
+    }
+
+    private static boolean isMeasured(String threadName) {
+        for (String prefix : MEASURED_THREADS) {
+            if (threadName.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void terminated() {
+        tuner.shutdownNow();
+        super.terminated();
+    }
+
+    private synchronized void tune() {
+        // Relevés faits à chaque fenêtre, même sans ajustement : la suivante part d'une base à jour
+        long read = bytesRead.getAsLong();
+        long bytes = read - lastBytesRead;
+        lastBytesRead = read;
+        long wall = takeBusyNanos();
+        long cpu = takeCpuNanos();
+
+        // Rien à ajuster sans file d'attente ni worker occupé
+        if (!autoTuning || wall == 0 || getQueue().isEmpty()) {
+            lastThroughput = -1;
+            direction = 0;
+            return;
+        }
+
+        double throughput = bytes * 1000.0 / TUNING_PERIOD_MS;
+        double waitRatio = cpuTimeSupported ? Math.max(0, 1.0 - (double) cpu / wall) : 0;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Sans contrainte disque, on vise un worker par cœur ; sinon on monte
+        int preferred = waitRatio > IO_BOUND_WAIT_RATIO ? 1 : Integer.compare(cores, getParallelism());
+
+        if (direction == 0 || lastThroughput <= 0) {
+            direction = preferred;
+        } else if (throughput < lastThroughput * (1 - SIGNIFICANT_CHANGE)) {
+            direction = -direction; // Le dernier pas a dégradé le débit : demi-tour
+        } else if (throughput < lastThroughput * (1 + SIGNIFICANT_CHANGE)) {
+            direction = preferred; // Plateau : on revient vers la cible
+        }
+        lastThroughput = throughput;
+        if (direction != 0) {
+            setParallelism(getParallelism() + direction);
+        }
+    }
+
+    private static int clamp(int parallelism) {
+        return Math.max(1, Math.min(MAX_THREADS, parallelism));
+    }
+
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,145 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Instantané immuable des paramètres de conversion, partagé par tous les workers. */
+final class ConversionPreset {
+
+    static final int CHANNELS_MONO = 0;
+    static final int CHANNELS_STEREO = 1;
+    static final int CHANNELS_ORIGINAL = 2;
+
+    final String outputFormat;
+    final float sampleRate;
+    final int sampleSizeInBits;
+    final int channelOption;
+    final float gain;
+    final boolean softLimit;
+    final ResamplerQuality resamplerQuality;
+    final File outputDirectory;
+    final String suffix; // Distingue les sorties d'un fichier converti vers plusieurs cibles
+    final float loudnessTarget; // Normalisation en LUFS, à la place du gain ; NaN : gain fixe
+
+    ConversionPreset(String outputFormat, float sampleRate, int sampleSizeInBits,
+                     int channelOption, float gain, boolean softLimit,
+                     ResamplerQuality resamplerQuality, File outputDirectory) {
+        this(outputFormat, sampleRate, sampleSizeInBits, channelOption, gain, softLimit, resamplerQuality,
+                outputDirectory, "");
+    }
+
+    ConversionPreset(String outputFormat, float sampleRate, int sampleSizeInBits,
+                     int channelOption, float gain, boolean softLimit,
+                     ResamplerQuality resamplerQuality, File outputDirectory, String suffix) {
+        this(outputFormat, sampleRate, sampleSizeInBits, channelOption, gain, softLimit, resamplerQuality,
+                outputDirectory, suffix, Float.NaN);
+    }
+
+    ConversionPreset(String outputFormat, float sampleRate, int sampleSizeInBits,
+                     int channelOption, float gain, boolean softLimit,
+                     ResamplerQuality resamplerQuality, File outputDirectory, String suffix,
+                     float loudnessTarget) {
+        this.outputFormat = outputFormat;
+        this.sampleRate = sampleRate;
+        this.sampleSizeInBits = sampleSizeInBits;
+        this.channelOption = channelOption;
+        this.gain = gain;
+        this.softLimit = softLimit;
+        this.resamplerQuality = resamplerQuality;
+        this.outputDirectory = outputDirectory;
+        this.suffix = suffix;
+        this.loudnessTarget = loudnessTarget;
+    }
+
+    ConversionPreset withSuffix(String suffix) {
+        return new ConversionPreset(outputFormat, sampleRate, sampleSizeInBits, channelOption, gain, softLimit,
+                resamplerQuality, outputDirectory, suffix, loudnessTarget);
+    }
+
+    /** Normalisation à {@code lufs} ; le gain est alors tiré de l'analyse de chaque source. */
+    ConversionPreset withLoudnessTarget(float lufs) {
+        return new ConversionPreset(outputFormat, sampleRate, sampleSizeInBits, channelOption, 1f, softLimit,
+                resamplerQuality, outputDirectory, suffix, lufs);
+    }
+
+    /** Même cible avec le gain de normalisation calculé pour une source. */
+    ConversionPreset withGain(float gain) {
+        return new ConversionPreset(outputFormat, sampleRate, sampleSizeInBits, channelOption, gain, softLimit,
+                resamplerQuality, outputDirectory, suffix, loudnessTarget);
+    }
+
+    boolean normalizes() {
+        return !Float.isNaN(loudnessTarget);
+    }
+
+    /**
+     * Cibles d'un même lot, sans doublon. Une cible seule garde le nom de
+     * sortie habituel ; à plusieurs, chacune reçoit un suffixe tiré de son
+     * profil (par exemple {@code _48k_24b_mono}), numéroté en cas d'égalité.
+     */
+    static List<ConversionPreset> distinctTargets(List<ConversionPreset> targets) {
+        Map<String, ConversionPreset> unique = new LinkedHashMap<>();
+        for (ConversionPreset target : targets) {
+            unique.putIfAbsent(target.profileKey(), target.withSuffix(""));
+        }
+        List<ConversionPreset> result = new ArrayList<>(unique.values());
+        if (result.size() < 2) return result;
+
+        Map<String, Integer> used = new HashMap<>();
+        for (int i = 0; i < result.size(); i++) {
+            ConversionPreset target = result.get(i);
+            String suffix = target.profileSuffix();
+            int n = used.merge(suffix + '.' + target.outputFormat.toLowerCase(), 1, Integer::sum);
+            result.set(i, target.withSuffix(n == 1 ? suffix : suffix + "_" + n));
+        }
+        return result;
+    }
+
+    private String profileKey() {
+        return outputFormat.toUpperCase() + '|' + Math.round(sampleRate) + '|' + sampleSizeInBits + '|'
+                + channelOption + '|' + gain + '|' + loudnessTarget + '|' + softLimit + '|' + resamplerQuality + '|'
+                + outputDirectory.getAbsolutePath();
+    }
+
+    private String profileSuffix() {
+        int rate = Math.round(sampleRate);
+        // 48000 -> 48k, 44100 -> 44k1, 22050 -> 22k05
+        String fraction = String.format("%03d", rate % 1000).replaceAll("0+$", "");
+        StringBuilder text = new StringBuilder("_").append(rate / 1000).append('k').append(fraction);
+        text.append('_').append(sampleSizeInBits).append('b');
+        if (channelOption == CHANNELS_MONO) text.append("_mono");
+        else if (channelOption == CHANNELS_STEREO) text.append("_stereo");
+        return text.toString();
+    }
+
+    int getChannels(AudioFormat sourceFormat) {
+        if (channelOption == CHANNELS_MONO) return 1;
+        if (channelOption == CHANNELS_STEREO) return 2;
+        return sourceFormat.getChannels(); // Original
+    }
+
+    AudioFileFormat.Type getFileType() {
+        switch (outputFormat.toUpperCase()) {
+            case "AIFF":
+                return AudioFileFormat.Type.AIFF;
+            case "AU":
+                return AudioFileFormat.Type.AU;
+            case "W64":
+                return AudioHeaders.W64;
+            case "WAV":
+            default:
+                return AudioFileFormat.Type.WAVE;
+        }
+    }
+
+    String getOutputFileName(File inputFile) {
+        String baseName = inputFile.getName();
+        int dotIndex = baseName.lastIndexOf('.');
+        if (dotIndex > 0) baseName = baseName.substring(0, dotIndex);
+        return baseName + "_converted" + suffix + "." + outputFormat.toLowerCase();
+    }
+}
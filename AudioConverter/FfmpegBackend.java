@@ -0,0 +1,247 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Décodage par un processus ffmpeg externe (MP3, FLAC, OGG...). ffmpeg écrit
+ * du PCM flottant 32 bits sur sa sortie standard, lu directement par le
+ * pipeline : aucun fichier temporaire. Le nombre de processus simultanés est
+ * plafonné par un sémaphore, libéré à la fermeture du flux.
+ */
+final class FfmpegBackend implements ConversionBackend {
+
+    private static final String[] EXTENSIONS = {
+            "mp3", "flac", "ogg", "oga", "opus", "m4a", "aac", "wma", "wv", "ape", "mka", "aif", "aifc"
+    };
+    private static final int STDERR_LIMIT = 4096;
+
+    private final File executable;
+    private final Semaphore processSlots;
+    private final Set<Process> running = ConcurrentHashMap.newKeySet();
+
+    private FfmpegBackend(File executable, int maxProcesses) {
+        this.executable = executable;
+        this.processSlots = new Semaphore(Math.max(1, maxProcesses), true);
+    }
+
+    /**
+     * Cherche ffmpeg : propriété {@code audioconverter.ffmpeg}, binaire fourni
+     * avec l'application (Windows), puis le PATH. Renvoie null s'il est introuvable.
+     */
+    static FfmpegBackend locate(int maxProcesses) {
+        List<File> candidates = new ArrayList<>();
+        String override = System.getProperty("audioconverter.ffmpeg");
+        if (override != null && !override.isEmpty()) {
+            candidates.add(new File(override));
+        }
+
+        boolean windows = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+        String binary = windows ? "ffmpeg.exe" : "ffmpeg";
+        if (windows) {
+            candidates.add(new File("ffmpeg" + File.separator + "bin", binary));
+            candidates.add(new File("AudioConverter" + File.separator + "ffmpeg" + File.separator + "bin", binary));
+            candidates.add(new File(binary));
+        }
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String dir : path.split(File.pathSeparator)) {
+                if (!dir.isEmpty()) candidates.add(new File(dir, binary));
+            }
+        }
+
+        for (File candidate : candidates) {
+            if (candidate.isFile() && candidate.canExecute()) {
+                return new FfmpegBackend(candidate.getAbsoluteFile(), maxProcesses);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return "ffmpeg (" + executable.getPath() + ")";
+    }
+
+    @Override
+    public String[] getInputExtensions() {
+        return EXTENSIONS.clone();
+    }
+
+    @Override
+    public AudioInputStream openSource(File input) throws IOException, UnsupportedAudioFileException {
+        try {
+            processSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attente d'un processus ffmpeg interrompue", e);
+        }
+
+        Process process = null;
+        try {
+            ProcessBuilder builder = new ProcessBuilder(
+                    executable.getPath(), "-nostdin", "-hide_banner", "-v", "error",
+                    "-i", input.getAbsolutePath(),
+                    "-map", "0:a:0", "-vn", "-map_metadata", "-1",
+                    "-acodec", "pcm_f32le", "-f", "wav", "pipe:1");
+            builder.redirectInput(ProcessBuilder.Redirect.PIPE);
+            process = builder.start();
+            running.add(process);
+            process.getOutputStream().close();
+
+            FfmpegStream stream = new FfmpegStream(process, input);
+            AudioFormat format = stream.readWaveHeader();
+            return new AudioInputStream(stream, format, AudioSystem.NOT_SPECIFIED);
+        } catch (IOException | RuntimeException e) {
+            if (process != null) {
+                process.destroyForcibly();
+                running.remove(process);
+            }
+            processSlots.release();
+            throw e;
+        }
+    }
+
+    /** Tue les décodeurs en cours : le worker bloqué sur le tube reçoit aussitôt la fin du flux. */
+    @Override
+    public void cancelAll() {
+        for (Process process : running) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Sortie standard de ffmpeg : en-tête WAV (tailles non renseignées sur un
+     * tube) puis PCM brut jusqu'à la fin du processus.
+     */
+    private final class FfmpegStream extends FilterInputStream {
+        private final Process process;
+        private final File input;
+        private final StringBuilder errors = new StringBuilder();
+        private final Thread stderrDrain;
+        private boolean closed;
+
+        FfmpegStream(Process process, File input) {
+            super(new BufferedInputStream(process.getInputStream(), 64 * 1024));
+            this.process = process;
+            this.input = input;
+            this.stderrDrain = new Thread(this::drainErrors, "ffmpeg-stderr");
+            this.stderrDrain.setDaemon(true);
+            this.stderrDrain.start();
+        }
+
+        AudioFormat readWaveHeader() throws IOException {
+            DataInputStream data = new DataInputStream(in);
+            byte[] id = new byte[4];
+            try {
+                data.readFully(id);
+                if (!"RIFF".equals(ascii(id))) throw failure("en-tête RIFF absent");
+                data.readInt();
+                data.readFully(id);
+
+                AudioFormat format = null;
+                while (true) {
+                    data.readFully(id);
+                    long size = Integer.reverseBytes(data.readInt()) & 0xFFFFFFFFL;
+                    String chunk = ascii(id);
+                    if ("data".equals(chunk)) break;
+                    if ("fmt ".equals(chunk)) {
+                        byte[] body = new byte[(int) size];
+                        data.readFully(body);
+                        int channels = (body[2] & 0xFF) | (body[3] & 0xFF) << 8;
+                        int rate = (body[4] & 0xFF) | (body[5] & 0xFF) << 8 | (body[6] & 0xFF) << 16 | (body[7] & 0xFF) << 24;
+                        format = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, rate, 32, channels,
+                                channels * 4, rate, false);
+                    } else {
+                        data.skipBytes((int) (size + (size & 1)));
+                    }
+                }
+                if (format == null) throw failure("chunk fmt absent");
+                return format;
+            } catch (EOFException e) {
+                throw failure("aucune donnée audio");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) checkExit();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) checkExit();
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                // Fermeture anticipée (erreur, arrêt) : le processus ne doit pas survivre au flux
+                if (process.isAlive()) process.destroyForcibly();
+                running.remove(process);
+                processSlots.release();
+            }
+        }
+
+        private void checkExit() throws IOException {
+            try {
+                int code = process.waitFor();
+                stderrDrain.join(1000);
+                if (code != 0) throw failure("code de sortie " + code);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Attente de ffmpeg interrompue", e);
+            }
+        }
+
+        private IOException failure(String reason) {
+            String details;
+            synchronized (errors) {
+                details = errors.toString().trim();
+            }
+            return new IOException("ffmpeg a échoué sur " + input.getName() + " (" + reason + ")"
+                    + (details.isEmpty() ? "" : " : " + details));
+        }
+
+        private void drainErrors() {
+            byte[] buffer = new byte[1024];
+            try (InputStream err = process.getErrorStream()) {
+                int n;
+                while ((n = err.read(buffer)) >= 0) {
+                    synchronized (errors) {
+                        if (errors.length() < STDERR_LIMIT) {
+                            errors.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            } catch (IOException ignored) {
+                // Processus terminé
+            }
+        }
+    }
+
+    private static String ascii(byte[] id) {
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+}
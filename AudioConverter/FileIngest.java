@@ -0,0 +1,194 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Ajout de fichiers hors de l'EDT : parcours récursif des dossiers et lecture
+ * des en-têtes en parallèle, résultats livrés par lots. Les demandes sont
+ * traitées une à une, dans l'ordre où elles arrivent.
+ */
+final class FileIngest {
+
+    private static final int PROBE_CHUNK = 64;
+    private static final int BATCH_SIZE = 500;
+    private static final long BATCH_INTERVAL_NANOS = 100_000_000L;
+
+    private final ConversionEngine engine;
+    private final ExecutorService coordinator =
+            Executors.newSingleThreadExecutor(ConversionPool.namedThreadFactory("file-ingest"));
+    // Lecture d'en-têtes : peu de CPU, surtout de la latence disque
+    private final ForkJoinPool probePool = new ForkJoinPool(
+            Math.min(32, Runtime.getRuntime().availableProcessors() * 2),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("file-probe-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+
+    FileIngest(ConversionEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Analyse les fichiers et dossiers donnés. {@code batches} reçoit les
+     * fichiers acceptés par paquets, {@code done} le nombre total ajouté ;
+     * les deux sont appelés hors de l'EDT.
+     */
+    void submit(List<File> roots, Consumer<List<AudioFile>> batches, IntConsumer done) {
+        List<File> snapshot = new ArrayList<>(roots);
+        coordinator.execute(() -> {
+            Batcher batcher = new Batcher(batches);
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            for (File root : snapshot) {
+                if (root.isDirectory()) {
+                    tasks.add(new DirectoryTask(root.toPath(), batcher));
+                } else if (accepts(root.toPath())) {
+                    files.add(root.toPath());
+                }
+            }
+            for (int i = 0; i < files.size(); i += PROBE_CHUNK) {
+                tasks.add(new ProbeTask(files.subList(i, Math.min(files.size(), i + PROBE_CHUNK)), batcher));
+            }
+            try {
+                probePool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(tasks);
+                    }
+                });
+            } finally {
+                // Même si un fichier fait échouer l'analyse, les autres sont livrés et la fin signalée
+                batcher.flush();
+                done.accept(batcher.count.get());
+            }
+        });
+    }
+
+    void shutdown() {
+        coordinator.shutdownNow();
+        probePool.shutdownNow();
+    }
+
+    private boolean accepts(Path path) {
+        return Files.isRegularFile(path) && engine.findBackend(path.toFile()) != null;
+    }
+
+    /** Liste un dossier, délègue ses sous-dossiers et ses fichiers par paquets. */
+    private final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Path directory;
+        private final Batcher batcher;
+
+        DirectoryTask(Path directory, Batcher batcher) {
+            this.directory = directory;
+            this.batcher = batcher;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            List<Path> chunk = new ArrayList<>(PROBE_CHUNK);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    // Liens symboliques vers des dossiers ignorés : pas de boucle possible
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        tasks.add(new DirectoryTask(entry, batcher).fork());
+                    } else if (accepts(entry)) {
+                        chunk.add(entry);
+                        if (chunk.size() == PROBE_CHUNK) {
+                            tasks.add(new ProbeTask(chunk, batcher).fork());
+                            chunk = new ArrayList<>(PROBE_CHUNK);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Dossier illisible : on garde ce qui a déjà été trouvé
+            }
+            if (!chunk.isEmpty()) {
+                new ProbeTask(chunk, batcher).compute();
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+    }
+
+    private static final class ProbeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Path> files;
+        private final Batcher batcher;
+
+        ProbeTask(List<Path> files, Batcher batcher) {
+            this.files = files;
+            this.batcher = batcher;
+        }
+
+        @Override
+        protected void compute() {
+            for (Path path : files) {
+                AudioFile audioFile = new AudioFile(path.toFile());
+                audioFile.probe();
+                batcher.add(audioFile);
+            }
+        }
+    }
+
+    /** Regroupe les résultats : un lot part quand il est plein ou assez ancien. */
+    private static final class Batcher {
+        private final Consumer<List<AudioFile>> sink;
+        private final AtomicInteger count = new AtomicInteger();
+        private List<AudioFile> pending = new ArrayList<>(BATCH_SIZE);
+        private long lastFlush = System.nanoTime();
+
+        Batcher(Consumer<List<AudioFile>> sink) {
+            this.sink = sink;
+        }
+
+        void add(AudioFile audioFile) {
+            List<AudioFile> ready = null;
+            synchronized (this) {
+                pending.add(audioFile);
+                long now = System.nanoTime();
+                if (pending.size() >= BATCH_SIZE || now - lastFlush >= BATCH_INTERVAL_NANOS) {
+                    ready = pending;
+                    pending = new ArrayList<>(BATCH_SIZE);
+                    lastFlush = now;
+                }
+            }
+            count.incrementAndGet();
+            if (ready != null) deliver(ready);
+        }
+
+        void flush() {
+            List<AudioFile> ready;
+            synchronized (this) {
+                ready = pending;
+                pending = new ArrayList<>();
+            }
+            if (!ready.isEmpty()) deliver(ready);
+        }
+
+        private void deliver(List<AudioFile> batch) {
+            // Ordre du disque à l'intérieur d'un lot, les lots arrivant au fil du parcours
+            batch.sort(Comparator.comparing(a -> a.file.getPath()));
+            sink.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Gain appliqué dans la passe de conversion (curseur de volume, 0 à 200 %).
+ * La boucle principale est une simple multiplication avec suivi du pic,
+ * que le compilateur JIT vectorise ; le limiteur n'est parcouru que pour les
+ * blocs dont le pic dépasse le seuil. Sans limiteur doux, l'écrêtage est
+ * assuré par l'encodeur à la pleine échelle de la profondeur cible.
+ */
+final class GainStage implements PcmStage {
+
+    /** Seuil d'entrée du limiteur doux : -1 dBFS. */
+    static final float SOFT_LIMIT_THRESHOLD = 0.891f;
+
+    private final float gain;
+    private final boolean softLimit;
+
+    GainStage(float gain, boolean softLimit) {
+        this.gain = gain;
+        this.softLimit = softLimit;
+    }
+
+    @Override
+    public PcmBlock process(PcmBlock in) {
+        int n = in.sampleCount();
+        float peak = apply(in.samples, n, gain);
+        if (softLimit && peak > SOFT_LIMIT_THRESHOLD) {
+            limit(in.samples, n);
+        }
+        return in;
+    }
+
+    /** Multiplie sur place et renvoie le pic absolu du bloc. */
+    static float apply(float[] samples, int count, float gain) {
+        float max = 0f;
+        float min = 0f;
+        for (int i = 0; i < count; i++) {
+            float v = samples[i] * gain;
+            samples[i] = v;
+            max = Math.max(max, v);
+            min = Math.min(min, v);
+        }
+        return Math.max(max, -min);
+    }
+
+    /**
+     * Courbe douce au-delà du seuil : y = T + (1 - T) * u / (1 + u), avec
+     * u = (|x| - T) / (1 - T). Continue et de pente 1 au seuil, tend vers 1.
+     */
+    static void limit(float[] samples, int count) {
+        final float t = SOFT_LIMIT_THRESHOLD;
+        final float range = 1f - t;
+        for (int i = 0; i < count; i++) {
+            float v = samples[i];
+            float a = Math.abs(v);
+            if (a > t) {
+                float u = (a - t) / range;
+                samples[i] = Math.copySign(t + range * u / (1f + u), v);
+            }
+        }
+    }
+}
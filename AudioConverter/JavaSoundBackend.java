@@ -0,0 +1,36 @@
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Décodage par Java Sound : formats natifs du JDK (WAV, AIFF, AU). Les
+ * conteneurs PCM 64 bits que le JDK ne connaît pas (RF64, W64) sont lus
+ * directement d'après leur {@link AudioFileLayout}.
+ */
+final class JavaSoundBackend implements ConversionBackend {
+
+    private static final String[] EXTENSIONS = {"wav", "aiff", "au", "w64"};
+
+    @Override
+    public String getName() {
+        return "Java Sound";
+    }
+
+    @Override
+    public String[] getInputExtensions() {
+        return EXTENSIONS.clone();
+    }
+
+    @Override
+    public AudioInputStream openSource(File input) throws IOException, UnsupportedAudioFileException {
+        try {
+            return AudioSystem.getAudioInputStream(input);
+        } catch (UnsupportedAudioFileException e) {
+            AudioFileLayout layout = AudioFileLayout.probe(input);
+            if (layout == null) throw e;
+            return layout.open(input);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Regroupe les changements d'état signalés par les workers. Un fichier
+ * signalé plusieurs fois avant l'envoi n'y figure qu'une fois, et un seul
+ * envoi est planifié à la fois, quel que soit le nombre de workers : pour
+ * l'interface, une tâche sur l'EDT par rafale de changements, pas une par
+ * événement.
+ */
+final class JobChangeBatch {
+
+    private final Set<AudioFile> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor executor;
+    private final Consumer<List<AudioFile>> sink;
+
+    /** @param executor thread de livraison (par exemple {@code SwingUtilities::invokeLater}) */
+    JobChangeBatch(Executor executor, Consumer<List<AudioFile>> sink) {
+        this.executor = executor;
+        this.sink = sink;
+    }
+
+    /** Appelable depuis n'importe quel thread. */
+    void mark(AudioFile audioFile) {
+        pending.add(audioFile);
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        // Libéré avant la collecte : un changement arrivé pendant celle-ci planifie l'envoi suivant
+        scheduled.set(false);
+        List<AudioFile> batch = new ArrayList<>(pending.size());
+        for (Iterator<AudioFile> it = pending.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+        }
+        if (!batch.isEmpty()) sink.accept(batch);
+    }
+}
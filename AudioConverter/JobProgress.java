@@ -0,0 +1,84 @@
+/**
+ * Progression d'une conversion, mesurée en octets source consommés.
+ * Un seul thread écrit à la fois (le worker, une fois par bloc, ou les
+ * segments d'un même fichier sous le verrou de l'objet) ; l'interface lit
+ * les valeurs à sa propre cadence, sans verrou ni événement par bloc.
+ */
+final class JobProgress {
+
+    private volatile long totalBytes = -1;
+    private volatile long processedBytes;
+    private volatile long processedFrames;
+    private volatile float sampleRate;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String label; // Ligne préparée par le relevé périodique de l'interface
+
+    /** @param totalBytes taille de la charge source, ou -1 si inconnue (flux ffmpeg) */
+    void start(long totalBytes, float sampleRate) {
+        this.processedBytes = 0;
+        this.processedFrames = 0;
+        this.endNanos = 0;
+        this.label = null;
+        this.totalBytes = totalBytes;
+        this.sampleRate = sampleRate;
+        this.startNanos = System.nanoTime();
+    }
+
+    /** Appelé par un seul écrivain à la fois : l'incrément non atomique est sûr. */
+    void advance(long bytes, long frames) {
+        processedBytes += bytes;
+        processedFrames += frames;
+    }
+
+    /** Texte d'avancement mis en forme hors du rendu ; null avant le premier relevé. */
+    String label() {
+        return label;
+    }
+
+    void setLabel(String label) {
+        this.label = label;
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    boolean isStarted() {
+        return startNanos != 0;
+    }
+
+    /** Fraction accomplie dans [0, 1], ou -1 si la taille totale est inconnue. */
+    double fraction() {
+        long total = totalBytes;
+        if (total <= 0) return total == 0 ? 1 : -1;
+        return Math.min(1.0, (double) processedBytes / total);
+    }
+
+    long processedBytes() {
+        return processedBytes;
+    }
+
+    double elapsedSeconds() {
+        long start = startNanos;
+        if (start == 0) return 0;
+        long end = endNanos;
+        return ((end != 0 ? end : System.nanoTime()) - start) / 1e9;
+    }
+
+    /** Facteur temps réel : secondes d'audio traitées par seconde écoulée. */
+    double realtimeFactor() {
+        double elapsed = elapsedSeconds();
+        float rate = sampleRate;
+        if (elapsed <= 0 || rate <= 0) return 0;
+        return processedFrames / rate / elapsed;
+    }
+
+    /** Temps restant estimé en secondes, ou -1 s'il est inconnu. */
+    double etaSeconds() {
+        double fraction = fraction();
+        double elapsed = elapsedSeconds();
+        if (fraction <= 0 || elapsed <= 0) return -1;
+        return elapsed * (1 - fraction) / fraction;
+    }
+}
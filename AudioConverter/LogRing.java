@@ -0,0 +1,73 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * File circulaire bornée, sans verrou : plusieurs threads écrivent, un seul
+ * lit. Chaque case porte un numéro de séquence qui indique à qui elle
+ * appartient (producteur ou lecteur). Quand l'anneau est plein, la ligne est
+ * comptée comme perdue plutôt que de bloquer un worker.
+ */
+final class LogRing {
+
+    private final String[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private long head; // Lecteur unique
+
+    /** @param capacity arrondie à la puissance de deux supérieure */
+    LogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new String[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Appelable depuis n'importe quel thread ; renvoie false si l'anneau est plein. */
+    boolean offer(String line) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) position & mask;
+            long distance = sequences.get(index) - position;
+            if (distance == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (distance < 0) {
+                dropped.increment(); // Le lecteur n'a pas encore libéré cette case
+                return false;
+            }
+            // distance > 0 : un autre producteur a pris la case, on recommence
+        }
+        slots[index] = line;
+        sequences.set(index, position + 1); // Publication : visible du lecteur après l'écriture
+        return true;
+    }
+
+    /** Réservé au thread lecteur ; renvoie le nombre de lignes transmises. */
+    int drain(Consumer<String> sink, int max) {
+        int count = 0;
+        while (count < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) break;
+            String line = slots[index];
+            slots[index] = null;
+            sequences.set(index, head + slots.length); // Case rendue aux producteurs
+            head++;
+            sink.accept(line);
+            count++;
+        }
+        return count;
+    }
+
+    /** Lignes perdues depuis le dernier appel. */
+    long takeDropped() {
+        return dropped.sumThenReset();
+    }
+}
@@ -0,0 +1,398 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Mesure de sonie EBU R128 / UIT-R BS.1770-4 faite pendant le décodage :
+ * sonie intégrée (pondération K, blocs de 400 ms tous les 100 ms, portes
+ * absolue à -70 LUFS et relative à -10 LU), crête vraie par suréchantillonnage
+ * et niveau RMS. Tous les tampons sont alloués à la construction ; un bloc
+ * n'alloue rien.
+ *
+ * Les blocs de 400 ms sont rangés dans un histogramme de 0,01 LU qui garde
+ * la somme exacte de leurs énergies : la mémoire ne dépend pas de la durée du
+ * fichier, et seule la porte relative est arrondie à 0,01 LU.
+ */
+final class LoudnessMeter {
+
+    /** Cible de normalisation EBU R128. */
+    static final float DEFAULT_TARGET_LUFS = -23f;
+    /** Crête vraie admise après normalisation sans limiteur doux. */
+    static final double TRUE_PEAK_CEILING_DB = -1.0;
+
+    private static final double ABSOLUTE_GATE_LUFS = -70.0;
+    private static final double RELATIVE_GATE_LU = -10.0;
+    private static final double HISTOGRAM_STEP = 0.01;
+    private static final int HISTOGRAM_BINS = 8000; // -70 à +10 LUFS
+    private static final int TRUE_PEAK_TAPS = 49;
+    private static final int TRUE_PEAK_CHUNK = 1024;
+
+    private final int channels;
+    private final double[] channelWeights;
+
+    // Pondération K : filtre en plateau puis passe-haut, une paire de biquads par canal
+    private final double[] shelfB = new double[3];
+    private final double[] shelfA = new double[3];
+    private final double[] highPassB = {1, -2, 1};
+    private final double[] highPassA = new double[3];
+    private final double[] filterState; // 2 états par filtre et par canal
+
+    // Sous-blocs de 100 ms : 4 consécutifs forment un bloc de porte de 400 ms
+    private final int subBlockFrames;
+    private final double[] subBlockEnergy = new double[4];
+    private int subBlockCount;
+    private int subBlockFill;
+    private final double[] pendingPower; // Somme des carrés pondérés du sous-bloc en cours, par canal
+
+    private final double[] histogramEnergy = new double[HISTOGRAM_BINS];
+    private final long[] histogramCount = new long[HISTOGRAM_BINS];
+
+    // Crête vraie : interpolation polyphasée sur une fenêtre linéaire par canal
+    private final int oversampling;
+    private final float[][] phases; // Phases 1 à L-1
+    private final int phaseTaps;
+    private final float phaseGain; // Borne du gain d'une phase : Σ|h|
+    private final float[][] windows; // Par canal : historique de phaseTaps - 1 trames puis le bloc en cours
+    private final float[] shifted;
+    private final float[][] interpolated; // Par phase
+    private final float[] peaks; // Pic de chaque position d'une tranche, toutes tranches, phases et canaux confondus
+    private float previousBlockPeak;
+    private float truePeak;
+
+    private float samplePeak;
+    private double sumOfSquares;
+    private long frames;
+
+    LoudnessMeter(float sampleRate, int channels) {
+        this.channels = channels;
+        this.channelWeights = channelWeights(channels);
+        this.filterState = new double[channels * 4];
+        this.pendingPower = new double[channels];
+        this.subBlockFrames = Math.max(1, Math.round(sampleRate / 10));
+        designKWeighting(sampleRate);
+
+        // Facteur 4 sous 96 kHz, 2 jusqu'à 192 kHz, au-delà les échantillons suffisent
+        this.oversampling = sampleRate < 96000 ? 4 : sampleRate < 192000 ? 2 : 1;
+        this.phaseTaps = TRUE_PEAK_TAPS / oversampling;
+        this.phases = new float[oversampling - 1][phaseTaps];
+        this.phaseGain = designInterpolator();
+        this.windows = new float[channels][phaseTaps - 1 + PcmPipeline.BLOCK_FRAMES];
+        this.shifted = new float[TRUE_PEAK_CHUNK];
+        this.interpolated = new float[oversampling - 1][TRUE_PEAK_CHUNK];
+        this.peaks = new float[TRUE_PEAK_CHUNK];
+    }
+
+    /** Accumule un bloc de trames décodées, entrelacées, sans le modifier. */
+    void accept(PcmBlock block) {
+        int n = block.frames;
+        float[] samples = block.samples;
+        // Quatre sommes partielles et un maximum sur entiers (|x| garde l'ordre de ses bits) :
+        // pas de chaîne de dépendance flottante d'un échantillon à l'autre
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int peakBits = 0;
+        int count = n * channels;
+        int i = 0;
+        for (; i + 3 < count; i += 4) {
+            float a = samples[i], b = samples[i + 1], c = samples[i + 2], d = samples[i + 3];
+            s0 += a * a;
+            s1 += b * b;
+            s2 += c * c;
+            s3 += d * d;
+            peakBits = Math.max(peakBits, Math.max(
+                    Math.max(Float.floatToRawIntBits(a) & 0x7FFFFFFF, Float.floatToRawIntBits(b) & 0x7FFFFFFF),
+                    Math.max(Float.floatToRawIntBits(c) & 0x7FFFFFFF, Float.floatToRawIntBits(d) & 0x7FFFFFFF)));
+        }
+        for (; i < count; i++) {
+            s0 += samples[i] * samples[i];
+            peakBits = Math.max(peakBits, Float.floatToRawIntBits(samples[i]) & 0x7FFFFFFF);
+        }
+        float blockPeak = Float.intBitsToFloat(peakBits);
+        sumOfSquares += (s0 + s1) + (s2 + s3);
+        samplePeak = Math.max(samplePeak, blockPeak);
+        frames += n;
+
+        measureLoudness(samples, n);
+        measureTruePeak(samples, n, blockPeak);
+    }
+
+    // ==================== SONIE ====================
+
+    private void measureLoudness(float[] samples, int n) {
+        int frame = 0;
+        while (frame < n) {
+            int run = Math.min(n - frame, subBlockFrames - subBlockFill);
+            for (int c = 0; c < channels; c++) {
+                pendingPower[c] += filterChannel(samples, frame, run, c);
+            }
+            frame += run;
+            subBlockFill += run;
+            if (subBlockFill == subBlockFrames) {
+                closeSubBlock();
+            }
+        }
+    }
+
+    /**
+     * Pondération K d'un canal sur {@code run} trames ; renvoie la somme des
+     * carrés filtrés. Forme directe transposée, termes groupés pour que la
+     * récurrence d'un échantillon au suivant ne passe que par y : le reste
+     * se calcule en parallèle.
+     */
+    private double filterChannel(float[] samples, int frame, int run, int c) {
+        int s = c * 4;
+        double s1 = filterState[s], s2 = filterState[s + 1], t1 = filterState[s + 2], t2 = filterState[s + 3];
+        double b0 = shelfB[0], b1 = shelfB[1], b2 = shelfB[2], a1 = shelfA[1], a2 = shelfA[2];
+        double hb0 = highPassB[0], hb1 = highPassB[1], hb2 = highPassB[2], ha1 = highPassA[1], ha2 = highPassA[2];
+        double power = 0;
+        for (int i = frame * channels + c, end = (frame + run) * channels; i < end; i += channels) {
+            double x = samples[i];
+            double y = b0 * x + s1;
+            s1 = (b1 * x + s2) - a1 * y;
+            s2 = b2 * x - a2 * y;
+            double z = hb0 * y + t1;
+            t1 = (hb1 * y + t2) - ha1 * z;
+            t2 = hb2 * y - ha2 * z;
+            power += z * z;
+        }
+        filterState[s] = s1;
+        filterState[s + 1] = s2;
+        filterState[s + 2] = t1;
+        filterState[s + 3] = t2;
+        return power;
+    }
+
+    private void closeSubBlock() {
+        double energy = 0;
+        for (int c = 0; c < channels; c++) {
+            energy += channelWeights[c] * pendingPower[c];
+            pendingPower[c] = 0;
+        }
+        subBlockEnergy[subBlockCount++ & 3] = energy;
+        subBlockFill = 0;
+        if (subBlockCount < 4) return;
+
+        // Bloc de 400 ms (recouvrement de 75 %) : énergie moyenne par trame
+        double block = (subBlockEnergy[0] + subBlockEnergy[1] + subBlockEnergy[2] + subBlockEnergy[3])
+                / (4.0 * subBlockFrames);
+        double loudness = loudness(block);
+        if (loudness <= ABSOLUTE_GATE_LUFS) return;
+        int bin = (int) Math.min(HISTOGRAM_BINS - 1, (loudness - ABSOLUTE_GATE_LUFS) / HISTOGRAM_STEP);
+        histogramEnergy[bin] += block;
+        histogramCount[bin]++;
+    }
+
+    private double integratedLoudness() {
+        double energy = 0;
+        long count = 0;
+        for (int i = 0; i < HISTOGRAM_BINS; i++) {
+            energy += histogramEnergy[i];
+            count += histogramCount[i];
+        }
+        if (count == 0) return Double.NEGATIVE_INFINITY;
+
+        double threshold = loudness(energy / count) + RELATIVE_GATE_LU;
+        int first = (int) Math.max(0, Math.ceil((threshold - ABSOLUTE_GATE_LUFS) / HISTOGRAM_STEP));
+        energy = 0;
+        count = 0;
+        for (int i = first; i < HISTOGRAM_BINS; i++) {
+            energy += histogramEnergy[i];
+            count += histogramCount[i];
+        }
+        return count == 0 ? Double.NEGATIVE_INFINITY : loudness(energy / count);
+    }
+
+    private static double loudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    /** Pondération des canaux (BS.1770) : 5.1 et 5.0 supposés dans l'ordre L R C (LFE) Ls Rs. */
+    private static double[] channelWeights(int channels) {
+        double[] weights = new double[channels];
+        Arrays.fill(weights, 1.0);
+        if (channels == 6) {
+            weights[3] = 0; // LFE ignoré
+            weights[4] = weights[5] = 1.41;
+        } else if (channels == 5) {
+            weights[3] = weights[4] = 1.41;
+        }
+        return weights;
+    }
+
+    /** Coefficients BS.1770 recalculés pour la fréquence de la source (transformée bilinéaire). */
+    private void designKWeighting(double rate) {
+        double f0 = 1681.974450955533;
+        double g = 3.999843853973347;
+        double q = 0.7071752369554196;
+        double k = Math.tan(Math.PI * f0 / rate);
+        double vh = Math.pow(10, g / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        shelfB[0] = (vh + vb * k / q + k * k) / a0;
+        shelfB[1] = 2 * (k * k - vh) / a0;
+        shelfB[2] = (vh - vb * k / q + k * k) / a0;
+        shelfA[0] = 1;
+        shelfA[1] = 2 * (k * k - 1) / a0;
+        shelfA[2] = (1 - k / q + k * k) / a0;
+
+        f0 = 38.13547087602444;
+        q = 0.5003270373238773;
+        k = Math.tan(Math.PI * f0 / rate);
+        a0 = 1 + k / q + k * k;
+        highPassA[0] = 1;
+        highPassA[1] = 2 * (k * k - 1) / a0;
+        highPassA[2] = (1 - k / q + k * k) / a0;
+    }
+
+    // ==================== CRÊTE VRAIE ====================
+
+    private void measureTruePeak(float[] samples, int n, float blockPeak) {
+        if (phases.length == 0) {
+            truePeak = Math.max(truePeak, blockPeak);
+            return;
+        }
+        // Une valeur interpolée ne dépasse pas Σ|h| fois le plus grand échantillon de sa fenêtre :
+        // un bloc nettement sous la crête déjà mesurée ne fait que renouveler l'historique
+        boolean skip = Math.max(blockPeak, previousBlockPeak) * phaseGain <= truePeak;
+        previousBlockPeak = blockPeak;
+        int keep = phaseTaps - 1;
+        if (windows[0].length < keep + n) { // Bloc plus grand que prévu : seule allocation possible
+            for (int c = 0; c < channels; c++) windows[c] = Arrays.copyOf(windows[c], keep + n);
+        }
+        if (!skip) {
+            Arrays.fill(peaks, 0f);
+        }
+        for (int c = 0; c < channels; c++) {
+            float[] x = windows[c];
+            for (int f = 0, i = c; f < n; f++, i += channels) {
+                x[keep + f] = samples[i];
+            }
+            if (!skip) {
+                for (int from = 0; from < n; from += TRUE_PEAK_CHUNK) {
+                    interpolate(x, from, Math.min(TRUE_PEAK_CHUNK, n - from));
+                }
+            }
+            System.arraycopy(x, n, x, 0, keep);
+        }
+        float peak = Math.max(truePeak, blockPeak);
+        if (!skip) {
+            for (float p : peaks) {
+                peak = Math.max(peak, p);
+            }
+        }
+        truePeak = peak;
+    }
+
+    /**
+     * Valeurs intermédiaires des trames {@code [from, from + count)} d'un
+     * canal, par tranches qui tiennent en cache L1 ; le maximum de chaque
+     * position s'accumule dans {@code peaks}. Chaque décalage de la fenêtre
+     * est recopié une fois puis accumulé à indice égal dans chaque phase :
+     * sans décalage entre lecture et écriture, le JIT vectorise.
+     */
+    private void interpolate(float[] x, int from, int count) {
+        int last = phaseTaps - 1;
+        for (int t = 0; t < phaseTaps; t++) {
+            System.arraycopy(x, from + last - t, shifted, 0, count);
+            for (int p = 0; p < phases.length; p++) {
+                float h = phases[p][t];
+                float[] y = interpolated[p];
+                if (t == 0) {
+                    for (int f = 0; f < count; f++) y[f] = h * shifted[f];
+                } else if (t < last) {
+                    for (int f = 0; f < count; f++) y[f] += h * shifted[f];
+                } else {
+                    for (int f = 0; f < count; f++) peaks[f] = Math.max(peaks[f], Math.abs(y[f] + h * shifted[f]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sinus cardinal fenêtré (Hann) de {@value #TRUE_PEAK_TAPS} coefficients,
+     * réparti en phases. La phase 0 retombe exactement sur les échantillons
+     * (déjà comptés dans la crête) : seules les autres sont gardées. Renvoie
+     * le plus grand Σ|h| d'une phase.
+     */
+    private float designInterpolator() {
+        float gain = 0f;
+        for (int p = 1; p < oversampling; p++) {
+            float sum = 0f;
+            for (int t = 0; t < phaseTaps; t++) {
+                int j = p + t * oversampling;
+                double m = j - (TRUE_PEAK_TAPS - 1) / 2.0;
+                double x = m * Math.PI / oversampling;
+                double c = Math.sin(x) / x * 0.5 * (1 - Math.cos(2 * Math.PI * j / (TRUE_PEAK_TAPS - 1)));
+                phases[p - 1][t] = (float) c;
+                sum += (float) Math.abs(c);
+            }
+            gain = Math.max(gain, sum);
+        }
+        return gain;
+    }
+
+    // ==================== RÉSULTAT ====================
+
+    /** Bilan des trames reçues jusqu'ici. */
+    Analysis result() {
+        double rms = frames == 0 ? 0 : Math.sqrt(sumOfSquares / ((double) frames * channels));
+        return new Analysis(integratedLoudness(), decibels(truePeak), decibels(samplePeak), decibels(rms));
+    }
+
+    private static double decibels(double linear) {
+        return 20 * Math.log10(linear);
+    }
+
+    /** Analyse d'une source, indépendante des réglages de conversion ; -∞ pour un silence. */
+    static final class Analysis {
+        final double integratedLufs;
+        final double truePeakDb;
+        final double samplePeakDb;
+        final double rmsDb;
+
+        Analysis(double integratedLufs, double truePeakDb, double samplePeakDb, double rmsDb) {
+            this.integratedLufs = integratedLufs;
+            this.truePeakDb = truePeakDb;
+            this.samplePeakDb = samplePeakDb;
+            this.rmsDb = rmsDb;
+        }
+
+        /**
+         * Gain amenant la source à {@code targetLufs}. Sans limiteur doux, il est
+         * réduit pour que la crête vraie reste sous {@value #TRUE_PEAK_CEILING_DB} dBTP ;
+         * un silence n'est pas amplifié.
+         */
+        float normalizationGain(float targetLufs, boolean softLimit) {
+            if (Double.isInfinite(integratedLufs)) return 1f;
+            double gainDb = targetLufs - integratedLufs;
+            if (!softLimit && !Double.isInfinite(truePeakDb)) {
+                gainDb = Math.min(gainDb, TRUE_PEAK_CEILING_DB - truePeakDb);
+            }
+            return (float) Math.pow(10, gainDb / 20);
+        }
+
+        /** Une ligne, relue par {@link #parse}. */
+        String serialize() {
+            return integratedLufs + "\t" + truePeakDb + '\t' + samplePeakDb + '\t' + rmsDb;
+        }
+
+        static Analysis parse(String text) {
+            String[] f = text.split("\t");
+            if (f.length != 4) return null;
+            try {
+                return new Analysis(Double.parseDouble(f[0]), Double.parseDouble(f[1]),
+                        Double.parseDouble(f[2]), Double.parseDouble(f[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return level(integratedLufs) + " LUFS, crête vraie " + level(truePeakDb) + " dBTP, RMS "
+                    + level(rmsDb) + " dBFS";
+        }
+
+        private static String level(double db) {
+            return Double.isInfinite(db) ? "-∞" : String.format(Locale.ROOT, "%.1f", db);
+        }
+    }
+}
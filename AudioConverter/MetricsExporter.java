@@ -0,0 +1,187 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export des {@link ConversionMetrics} au format texte Prometheus ou JSON.
+ * Un thread relève un instantané par seconde (les débits portent donc sur
+ * la dernière seconde) et, au choix, le réécrit dans un fichier ou le sert
+ * en HTTP sur l'interface locale uniquement : {@code /metrics} (Prometheus)
+ * et {@code /metrics.json}.
+ */
+final class MetricsExporter implements AutoCloseable {
+
+    private static final long SAMPLE_PERIOD_MS = 1000;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ConversionMetrics metrics;
+    private final ScheduledExecutorService sampler;
+    private volatile ConversionMetrics.Snapshot previous;
+    private volatile ConversionMetrics.Snapshot latest;
+    private volatile File file;
+    private HttpServer server;
+
+    MetricsExporter(ConversionMetrics metrics) {
+        this.metrics = metrics;
+        this.latest = metrics.snapshot();
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(this::sample, SAMPLE_PERIOD_MS, SAMPLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Fichier réécrit à chaque relevé : JSON si son nom finit par {@code .json}, Prometheus sinon. */
+    void writeTo(File file) {
+        this.file = file;
+    }
+
+    /** Sert les métriques sur 127.0.0.1:{@code port} ; renvoie le port effectif (utile avec 0). */
+    synchronized int serve(int port) throws IOException {
+        if (server != null) server.stop(0);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, prometheus(latest),
+                "text/plain; version=0.0.4; charset=utf-8"));
+        server.createContext("/metrics.json", exchange -> respond(exchange, json(latest, previous),
+                "application/json; charset=utf-8"));
+        server.setExecutor(null); // Fil de réception unique : une requête coûte quelques microsecondes
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    synchronized void stopServing() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /** Dernier relevé, et relevé final dans le fichier. */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        stopServing();
+        sample();
+    }
+
+    private void sample() {
+        previous = latest;
+        latest = metrics.snapshot();
+        File target = file;
+        if (target == null) return;
+        String text = target.getName().endsWith(".json") ? json(latest, previous) : prometheus(latest);
+        Path temp = AtomicOutput.siblingTemp(target);
+        try {
+            Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+            AtomicOutput.replace(temp, target);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nouvel essai au prochain relevé
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ==================== FORMATS ====================
+
+    static String prometheus(ConversionMetrics.Snapshot s) {
+        StringBuilder sb = new StringBuilder(2048);
+        counter(sb, "audioconverter_frames_read_total", "Trames source lues", s.framesRead);
+        counter(sb, "audioconverter_read_bytes_total", "Octets source lus", s.bytesRead);
+        counter(sb, "audioconverter_written_bytes_total", "Octets écrits", s.bytesWritten);
+        sb.append("# HELP audioconverter_audio_seconds_total Durée audio traitée\n")
+                .append("# TYPE audioconverter_audio_seconds_total counter\n")
+                .append("audioconverter_audio_seconds_total ").append(number(s.audioMicros / 1e6)).append('\n');
+        sb.append("# HELP audioconverter_files_total Fichiers terminés\n")
+                .append("# TYPE audioconverter_files_total counter\n")
+                .append("audioconverter_files_total{result=\"success\"} ").append(s.filesSucceeded).append('\n')
+                .append("audioconverter_files_total{result=\"failure\"} ").append(s.filesFailed).append('\n');
+        gauge(sb, "audioconverter_queue_depth", "Fichiers en attente d'un worker", s.queueDepth);
+        gauge(sb, "audioconverter_active_workers", "Workers en cours de conversion", s.activeWorkers);
+
+        sb.append("# HELP audioconverter_stage_seconds Durée de traitement d'un bloc par étape\n")
+                .append("# TYPE audioconverter_stage_seconds summary\n");
+        for (ConversionMetrics.Stage stage : ConversionMetrics.Stage.values()) {
+            LatencyHistogram.Snapshot h = s.stage(stage);
+            for (double q : QUANTILES) {
+                sb.append("audioconverter_stage_seconds{stage=\"").append(stage.key)
+                        .append("\",quantile=\"").append(q).append("\"} ")
+                        .append(number(h.quantile(q) / 1e9)).append('\n');
+            }
+            sb.append("audioconverter_stage_seconds_sum{stage=\"").append(stage.key).append("\"} ")
+                    .append(number(h.totalNanos / 1e9)).append('\n');
+            sb.append("audioconverter_stage_seconds_count{stage=\"").append(stage.key).append("\"} ")
+                    .append(h.count).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Compteurs cumulés, débits depuis {@code previous} et quantiles de latence en microsecondes. */
+    static String json(ConversionMetrics.Snapshot s, ConversionMetrics.Snapshot previous) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"uptimeSeconds\":").append(number(s.uptimeNanos / 1e9))
+                .append(",\"framesRead\":").append(s.framesRead)
+                .append(",\"bytesRead\":").append(s.bytesRead)
+                .append(",\"bytesWritten\":").append(s.bytesWritten)
+                .append(",\"filesSucceeded\":").append(s.filesSucceeded)
+                .append(",\"filesFailed\":").append(s.filesFailed)
+                .append(",\"queueDepth\":").append(s.queueDepth)
+                .append(",\"activeWorkers\":").append(s.activeWorkers)
+                .append(",\"framesPerSecond\":").append(number(s.framesPerSecond(previous)))
+                .append(",\"readBytesPerSecond\":").append(number(s.bytesReadPerSecond(previous)))
+                .append(",\"writtenBytesPerSecond\":").append(number(s.bytesWrittenPerSecond(previous)))
+                .append(",\"realtimeFactor\":").append(number(s.realtimeFactor(previous)))
+                .append(",\"stages\":{");
+        ConversionMetrics.Stage[] stages = ConversionMetrics.Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram.Snapshot h = s.stage(stages[i]);
+            if (i > 0) sb.append(',');
+            sb.append('"').append(stages[i].key).append("\":{\"count\":").append(h.count)
+                    .append(",\"meanMicros\":").append(number(h.meanNanos() / 1e3))
+                    .append(",\"p50Micros\":").append(number(h.quantile(0.5) / 1e3))
+                    .append(",\"p90Micros\":").append(number(h.quantile(0.9) / 1e3))
+                    .append(",\"p99Micros\":").append(number(h.quantile(0.99) / 1e3))
+                    .append(",\"maxMicros\":").append(number(h.maxNanos / 1e3)).append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6g", value);
+    }
+}
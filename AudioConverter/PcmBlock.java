@@ -0,0 +1,26 @@
+/**
+ * Bloc audio décodé : échantillons flottants entrelacés, normalisés dans [-1, 1].
+ * Les tampons sont réutilisés d'un bloc à l'autre, jamais réalloués en régime établi.
+ */
+final class PcmBlock {
+    float[] samples;
+    int frames;
+    int channels;
+
+    PcmBlock(int capacityFrames, int channels) {
+        this.samples = new float[capacityFrames * channels];
+        this.channels = channels;
+    }
+
+    /** Garantit la place pour {@code frames} trames ; ne réalloue que si le bloc est trop petit. */
+    void ensureCapacity(int frames, int channels) {
+        if (samples.length < frames * channels) {
+            samples = new float[frames * channels];
+        }
+        this.channels = channels;
+    }
+
+    int sampleCount() {
+        return frames * channels;
+    }
+}
@@ -0,0 +1,204 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Décodage et encodage PCM en une seule passe, sans couche de conversion JDK.
+ * Chaque combinaison profondeur / boutisme a sa propre boucle serrée.
+ */
+final class PcmCodec {
+
+    private PcmCodec() {
+    }
+
+    /** Vrai si le format peut être décodé directement (PCM entier 8-32 bits ou flottant 32/64 bits). */
+    static boolean isDecodable(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        int bits = format.getSampleSizeInBits();
+        int channels = format.getChannels();
+        if (channels <= 0 || format.getFrameSize() != channels * ((bits + 7) / 8)) return false;
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) return bits == 32 || bits == 64;
+        return (AudioFormat.Encoding.PCM_SIGNED.equals(encoding)
+                || AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding))
+                && (bits == 8 || bits == 16 || bits == 24 || bits == 32);
+    }
+
+    /**
+     * Format d'écriture natif du conteneur : l'encodeur produit directement
+     * l'ordre d'octets et la signature attendus, l'écrivain n'a plus qu'à copier.
+     */
+    static AudioFormat containerFormat(AudioFileFormat.Type type, float sampleRate, int bits, int channels) {
+        boolean wave = AudioFileFormat.Type.WAVE.equals(type) || AudioHeaders.W64.equals(type);
+        AudioFormat.Encoding encoding = (wave && bits == 8)
+                ? AudioFormat.Encoding.PCM_UNSIGNED
+                : AudioFormat.Encoding.PCM_SIGNED;
+        return new AudioFormat(encoding, sampleRate, bits, channels,
+                channels * (bits / 8), sampleRate, !wave);
+    }
+
+    static void decode(byte[] in, int offset, int samples, AudioFormat format, float[] out) {
+        int bits = format.getSampleSizeInBits();
+        boolean bigEndian = format.isBigEndian();
+
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(format.getEncoding())) {
+            decodeFloat(in, offset, samples, bits, bigEndian, out);
+            return;
+        }
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding());
+        int p = offset;
+
+        switch (bits) {
+            case 8: {
+                int bias = unsigned ? 128 : 0;
+                for (int i = 0; i < samples; i++) {
+                    int v = unsigned ? (in[p++] & 0xFF) - bias : in[p++];
+                    out[i] = v * (1f / 128f);
+                }
+                break;
+            }
+            case 16: {
+                int flip = unsigned ? 0x8000 : 0;
+                if (bigEndian) {
+                    for (int i = 0; i < samples; i++, p += 2) {
+                        int v = (short) ((((in[p] & 0xFF) << 8) | (in[p + 1] & 0xFF)) ^ flip);
+                        out[i] = v * (1f / 32768f);
+                    }
+                } else {
+                    for (int i = 0; i < samples; i++, p += 2) {
+                        int v = (short) ((((in[p + 1] & 0xFF) << 8) | (in[p] & 0xFF)) ^ flip);
+                        out[i] = v * (1f / 32768f);
+                    }
+                }
+                break;
+            }
+            case 24: {
+                int flip = unsigned ? 0x800000 : 0;
+                if (bigEndian) {
+                    for (int i = 0; i < samples; i++, p += 3) {
+                        int v = (((in[p] & 0xFF) << 16) | ((in[p + 1] & 0xFF) << 8) | (in[p + 2] & 0xFF)) ^ flip;
+                        out[i] = ((v << 8) >> 8) * (1f / 8388608f);
+                    }
+                } else {
+                    for (int i = 0; i < samples; i++, p += 3) {
+                        int v = (((in[p + 2] & 0xFF) << 16) | ((in[p + 1] & 0xFF) << 8) | (in[p] & 0xFF)) ^ flip;
+                        out[i] = ((v << 8) >> 8) * (1f / 8388608f);
+                    }
+                }
+                break;
+            }
+            case 32: {
+                int flip = unsigned ? 0x80000000 : 0;
+                if (bigEndian) {
+                    for (int i = 0; i < samples; i++, p += 4) {
+                        int v = ((in[p] << 24) | ((in[p + 1] & 0xFF) << 16)
+                                | ((in[p + 2] & 0xFF) << 8) | (in[p + 3] & 0xFF)) ^ flip;
+                        out[i] = v * (1f / 2147483648f);
+                    }
+                } else {
+                    for (int i = 0; i < samples; i++, p += 4) {
+                        int v = ((in[p + 3] << 24) | ((in[p + 2] & 0xFF) << 16)
+                                | ((in[p + 1] & 0xFF) << 8) | (in[p] & 0xFF)) ^ flip;
+                        out[i] = v * (1f / 2147483648f);
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Profondeur non supportée : " + bits + " bits");
+        }
+    }
+
+    private static void decodeFloat(byte[] in, int offset, int samples, int bits, boolean bigEndian, float[] out) {
+        int p = offset;
+        if (bits == 32) {
+            for (int i = 0; i < samples; i++, p += 4) {
+                int v = bigEndian
+                        ? (in[p] << 24) | ((in[p + 1] & 0xFF) << 16) | ((in[p + 2] & 0xFF) << 8) | (in[p + 3] & 0xFF)
+                        : (in[p + 3] << 24) | ((in[p + 2] & 0xFF) << 16) | ((in[p + 1] & 0xFF) << 8) | (in[p] & 0xFF);
+                out[i] = Float.intBitsToFloat(v);
+            }
+        } else {
+            for (int i = 0; i < samples; i++, p += 8) {
+                long v = 0;
+                for (int b = 0; b < 8; b++) {
+                    int shift = bigEndian ? (7 - b) * 8 : b * 8;
+                    v |= (in[p + b] & 0xFFL) << shift;
+                }
+                out[i] = (float) Double.longBitsToDouble(v);
+            }
+        }
+    }
+
+    /**
+     * Encode les échantillons flottants vers le format cible, avec écrêtage
+     * à la pleine échelle de la profondeur demandée.
+     */
+    static void encode(float[] in, int samples, AudioFormat format, byte[] out) {
+        int bits = format.getSampleSizeInBits();
+        boolean bigEndian = format.isBigEndian();
+        boolean unsigned = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding());
+        int p = 0;
+
+        switch (bits) {
+            case 8: {
+                int bias = unsigned ? 128 : 0;
+                for (int i = 0; i < samples; i++) {
+                    out[p++] = (byte) (quantize(in[i], 128f, -128, 127) + bias);
+                }
+                break;
+            }
+            case 16: {
+                for (int i = 0; i < samples; i++, p += 2) {
+                    int v = quantize(in[i], 32768f, -32768, 32767);
+                    if (bigEndian) {
+                        out[p] = (byte) (v >> 8);
+                        out[p + 1] = (byte) v;
+                    } else {
+                        out[p] = (byte) v;
+                        out[p + 1] = (byte) (v >> 8);
+                    }
+                }
+                break;
+            }
+            case 24: {
+                for (int i = 0; i < samples; i++, p += 3) {
+                    int v = quantize(in[i], 8388608f, -8388608, 8388607);
+                    if (bigEndian) {
+                        out[p] = (byte) (v >> 16);
+                        out[p + 1] = (byte) (v >> 8);
+                        out[p + 2] = (byte) v;
+                    } else {
+                        out[p] = (byte) v;
+                        out[p + 1] = (byte) (v >> 8);
+                        out[p + 2] = (byte) (v >> 16);
+                    }
+                }
+                break;
+            }
+            case 32: {
+                for (int i = 0; i < samples; i++, p += 4) {
+                    // La conversion float -> int sature d'elle-même aux bornes de l'entier
+                    int v = Math.round(in[i] * 2147483648f);
+                    if (bigEndian) {
+                        out[p] = (byte) (v >> 24);
+                        out[p + 1] = (byte) (v >> 16);
+                        out[p + 2] = (byte) (v >> 8);
+                        out[p + 3] = (byte) v;
+                    } else {
+                        out[p] = (byte) v;
+                        out[p + 1] = (byte) (v >> 8);
+                        out[p + 2] = (byte) (v >> 16);
+                        out[p + 3] = (byte) (v >> 24);
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Profondeur non supportée : " + bits + " bits");
+        }
+    }
+
+    private static int quantize(float sample, float scale, int min, int max) {
+        int v = Math.round(sample * scale);
+        return v < min ? min : (v > max ? max : v);
+    }
+}
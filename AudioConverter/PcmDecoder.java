@@ -0,0 +1,98 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+
+/**
+ * Décodage d'une source Java Sound en blocs de flottants, premier maillon
+ * d'un {@link PcmPipeline} ou d'un {@link PcmFanOut}. Le tampon de lecture
+ * est alloué une fois ; la progression et le temps de décodage sont relevés
+ * à chaque bloc. Un {@link LoudnessMeter} éventuel mesure les blocs au
+ * passage, son temps compté avec le décodage.
+ */
+final class PcmDecoder implements PcmPipeline.Source {
+
+    private final AudioInputStream stream;
+    private final AudioFormat format;
+    private final byte[] readBuffer;
+    private JobProgress progress;
+    private ConversionMetrics metrics;
+    private LoudnessMeter meter;
+
+    /** @param stream source déjà décodable (voir {@link #decodable}) */
+    PcmDecoder(AudioInputStream stream, int blockFrames) {
+        this.stream = stream;
+        this.format = stream.getFormat();
+        this.readBuffer = new byte[blockFrames * format.getFrameSize()];
+    }
+
+    /**
+     * Les encodages non PCM (u-law, a-law...) sont d'abord décodés en PCM
+     * 16 bits par Java Sound, sans changer de taux.
+     */
+    static AudioInputStream decodable(AudioInputStream source) {
+        AudioFormat format = source.getFormat();
+        if (PcmCodec.isDecodable(format)) return source;
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                format.getSampleRate(), 16, format.getChannels(),
+                format.getChannels() * 2, format.getSampleRate(), false);
+        return AudioSystem.getAudioInputStream(pcm, source);
+    }
+
+    void setProgress(JobProgress progress) {
+        this.progress = progress;
+    }
+
+    void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setMeter(LoudnessMeter meter) {
+        this.meter = meter;
+    }
+
+    @Override
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public long getFrameLength() {
+        return stream.getFrameLength();
+    }
+
+    @Override
+    public int read(PcmBlock block) throws IOException {
+        long start = metrics != null ? System.nanoTime() : 0;
+        int frameSize = format.getFrameSize();
+        int total = 0;
+        while (total < readBuffer.length) {
+            int n = stream.read(readBuffer, total, readBuffer.length - total);
+            if (n < 0) break;
+            total += n;
+        }
+        int frames = total / frameSize;
+        if (frames <= 0) return 0;
+
+        long bytes = (long) frames * frameSize;
+        if (progress != null) {
+            progress.advance(bytes, frames);
+        }
+        block.ensureCapacity(frames, format.getChannels());
+        block.frames = frames;
+        PcmCodec.decode(readBuffer, 0, frames * block.channels, format, block.samples);
+        if (meter != null) {
+            meter.accept(block);
+        }
+        if (metrics != null) {
+            metrics.recordStage(ConversionMetrics.Stage.DECODE, System.nanoTime() - start);
+            metrics.recordRead(bytes, frames, format.getSampleRate());
+        }
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
@@ -0,0 +1,220 @@
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Une source décodée une seule fois, plusieurs sorties : chaque bloc produit
+ * par le {@link PcmDecoder} est diffusé à des branches parallèles qui font
+ * chacune leurs transformations, leur encodage et leur écriture.
+ *
+ * Les blocs décodés circulent dans un jeu fixe de {@value #SLOTS} cases
+ * partagées, rendues au décodeur quand toutes les branches les ont recopiées :
+ * la mémoire est bornée et la branche la plus lente impose le rythme. Une
+ * branche en échec cesse simplement de recevoir des blocs, les autres
+ * continuent.
+ */
+final class PcmFanOut {
+
+    /** Sortie alimentée par une branche ; appelée sur un thread de l'exécuteur fourni. */
+    interface Branch {
+        void run(PcmPipeline.Source source) throws Exception;
+    }
+
+    /** Blocs décodés en vol, toutes branches confondues. */
+    static final int SLOTS = 4;
+
+    private static final Slot END = new Slot(0, 0);
+
+    private PcmFanOut() {
+    }
+
+    /**
+     * Décode la source sur le thread appelant et alimente les branches
+     * jusqu'à leur fin. {@code executor} doit pouvoir lancer toutes les
+     * branches à la fois : elles avancent ensemble, une branche en attente de
+     * thread bloquerait les autres. Renvoie l'erreur de chaque branche (null si elle a
+     * réussi) ; une erreur de lecture ou une interruption du thread appelant
+     * arrête toutes les branches et est relancée, une fois leurs sorties
+     * abandonnées.
+     */
+    static List<Throwable> run(PcmDecoder decoder, List<Branch> branches, ExecutorService executor)
+            throws IOException {
+        AudioFormat format = decoder.getFormat();
+        BlockingQueue<Slot> free = new ArrayBlockingQueue<>(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            free.add(new Slot(PcmPipeline.BLOCK_FRAMES, format.getChannels()));
+        }
+
+        CountDownLatch done = new CountDownLatch(branches.size());
+        List<Lane> lanes = new ArrayList<>(branches.size());
+        List<Future<?>> futures = new ArrayList<>(branches.size());
+        for (Branch branch : branches) {
+            Lane lane = new Lane(format, decoder.getFrameLength(), free);
+            lanes.add(lane);
+            futures.add(executor.submit(() -> {
+                try {
+                    branch.run(lane);
+                } catch (Throwable t) {
+                    lane.error = t;
+                } finally {
+                    lane.close();
+                    done.countDown();
+                }
+            }));
+        }
+
+        Exception failure = null;
+        try {
+            while (!allClosed(lanes)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Conversion annulée");
+                }
+                Slot slot = free.take();
+                if (decoder.read(slot.block) <= 0) {
+                    free.add(slot);
+                    break;
+                }
+                slot.refs.set(lanes.size());
+                for (Lane lane : lanes) {
+                    lane.offer(slot);
+                }
+            }
+            for (Lane lane : lanes) {
+                lane.offer(END);
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Conversion annulée");
+        }
+
+        if (failure != null) {
+            // Les branches abandonnent leur sortie (temporaire supprimé) au prochain bloc
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                done.await(); // Aucune branche ne doit survivre à l'appel
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure instanceof IOException) throw (IOException) failure;
+        if (failure != null) throw (RuntimeException) failure;
+
+        List<Throwable> errors = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes) {
+            errors.add(lane.error);
+        }
+        return errors;
+    }
+
+    private static boolean allClosed(List<Lane> lanes) {
+        for (Lane lane : lanes) {
+            if (!lane.closed) return false;
+        }
+        return true;
+    }
+
+    /** Case partagée : rendue au décodeur quand la dernière branche l'a recopiée. */
+    private static final class Slot {
+        final PcmBlock block;
+        final AtomicInteger refs = new AtomicInteger();
+
+        Slot(int frames, int channels) {
+            block = new PcmBlock(frames, channels);
+        }
+    }
+
+    /** File d'une branche, vue par son pipeline comme une source de blocs. */
+    private static final class Lane implements PcmPipeline.Source {
+        private final AudioFormat format;
+        private final long frameLength;
+        private final BlockingQueue<Slot> free;
+        private final BlockingQueue<Slot> queue = new ArrayBlockingQueue<>(SLOTS + 1); // + END
+        private volatile boolean closed;
+        private boolean ended;
+        volatile Throwable error;
+
+        Lane(AudioFormat format, long frameLength, BlockingQueue<Slot> free) {
+            this.format = format;
+            this.frameLength = frameLength;
+            this.free = free;
+        }
+
+        @Override
+        public AudioFormat getFormat() {
+            return format;
+        }
+
+        @Override
+        public long getFrameLength() {
+            return frameLength;
+        }
+
+        @Override
+        public int read(PcmBlock block) throws IOException {
+            if (ended) return 0;
+            Slot slot;
+            try {
+                slot = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Conversion annulée");
+            }
+            if (slot == END) {
+                ended = true;
+                return 0;
+            }
+            // Copie privée : les étapes (gain) travaillent en place
+            PcmBlock shared = slot.block;
+            block.ensureCapacity(shared.frames, shared.channels);
+            System.arraycopy(shared.samples, 0, block.samples, 0, shared.sampleCount());
+            block.frames = shared.frames;
+            release(slot);
+            return block.frames;
+        }
+
+        /** Appelé par le décodeur ; une branche fermée rend aussitôt la case. */
+        void offer(Slot slot) throws InterruptedException {
+            if (closed) {
+                release(slot);
+                return;
+            }
+            queue.put(slot);
+            if (closed) drain(); // Fermée pendant l'attente : personne ne lira plus
+        }
+
+        /** Fin de la branche (réussie ou non) : ses cases en attente sont rendues. */
+        @Override
+        public void close() {
+            closed = true;
+            drain();
+        }
+
+        private void drain() {
+            for (Slot slot; (slot = queue.poll()) != null; ) {
+                release(slot);
+            }
+        }
+
+        private void release(Slot slot) {
+            if (slot != END && slot.refs.decrementAndGet() == 0) {
+                free.add(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Écrit un flux PCM déjà encodé au format du conteneur (voir
+ * {@link PcmCodec#containerFormat}) dans un fichier WAV, W64, AIFF ou AU, via
+ * {@link AtomicOutput}. Remplace {@code AudioSystem.write}, qui écrit
+ * directement sous le nom final et, selon le format, garde tout le flux en
+ * mémoire ou revient corriger l'en-tête.
+ *
+ * Quand le nombre de trames est connu d'avance (cas du {@link PcmPipeline}
+ * sur une source Java Sound), l'en-tête est écrit une seule fois et le
+ * fichier dimensionné dès l'ouverture. Sinon (flux ffmpeg), l'en-tête est
+ * complété à la fin, une seule réécriture de quelques dizaines d'octets :
+ * l'en-tête réservé a la même taille que le fichier final passe ou non en
+ * RF64 (voir {@link AudioHeaders#streamingHeader}).
+ */
+final class PcmFileWriter {
+
+    private static final int BUFFER_BYTES = 1024 * 1024;
+
+    private PcmFileWriter() {
+    }
+
+    /**
+     * @param frames  nombre de trames du flux, ou {@link AudioSystem#NOT_SPECIFIED}
+     * @param metrics temps d'écriture et octets écrits ; peut être null
+     */
+    static void write(InputStream pcm, AudioFileFormat.Type type, AudioFormat format, long frames,
+                      File output, ConversionMetrics metrics) throws IOException {
+        int frameSize = format.getFrameSize();
+        boolean known = frames != AudioSystem.NOT_SPECIFIED && frames >= 0;
+        if (known) {
+            AudioHeaders.checkLength(type, frames * frameSize);
+        }
+        ByteBuffer header = known
+                ? AudioHeaders.header(type, format, frames)
+                : AudioHeaders.streamingHeader(type, format, 0);
+        int headerLength = header.remaining();
+        long expectedLength = known
+                ? headerLength + frames * frameSize + AudioHeaders.trailerLength(type, format, frames)
+                : -1;
+
+        try (AtomicOutput out = AtomicOutput.create(output, expectedLength)) {
+            out.write(header);
+
+            // Tampon multiple de la taille de trame : seules des trames entières sont écrites
+            byte[] chunk = new byte[BUFFER_BYTES - BUFFER_BYTES % frameSize];
+            ByteBuffer wrapped = ByteBuffer.wrap(chunk);
+            long written = 0;
+            long limit = known ? frames * frameSize : Long.MAX_VALUE;
+            int pending = 0;
+            while (written < limit) {
+                int n = pcm.read(chunk, pending, (int) Math.min(chunk.length - pending, limit - written - pending));
+                if (n < 0) break;
+                pending += n;
+                int whole = pending - pending % frameSize;
+                if (whole == 0) continue;
+                wrapped.clear().limit(whole);
+                long start = metrics != null ? System.nanoTime() : 0;
+                out.write(wrapped);
+                if (metrics != null) {
+                    metrics.recordStage(ConversionMetrics.Stage.WRITE, System.nanoTime() - start);
+                    metrics.recordWritten(whole);
+                }
+                written += whole;
+                pending -= whole;
+                if (!known) {
+                    AudioHeaders.checkLength(type, written); // Échoue tôt plutôt qu'à la fin d'un flux de 4 Go
+                }
+                System.arraycopy(chunk, whole, chunk, 0, pending);
+            }
+
+            long actualFrames = written / frameSize;
+            if (known && actualFrames < frames) {
+                throw new IOException("Flux tronqué : " + actualFrames + " trame(s) sur " + frames);
+            }
+            int trailer = AudioHeaders.trailerLength(type, format, actualFrames);
+            if (trailer > 0) {
+                out.write(ByteBuffer.allocate(trailer));
+            }
+            if (!known) {
+                // Longueur découverte en fin de flux : seul l'en-tête est réécrit
+                long end = out.channel().position();
+                ByteBuffer patched = AudioHeaders.streamingHeader(type, format, actualFrames);
+                while (patched.hasRemaining()) {
+                    out.channel().write(patched, headerLength - patched.remaining());
+                }
+                out.channel().position(end);
+            }
+            out.commit();
+        }
+    }
+}
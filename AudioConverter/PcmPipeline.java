@@ -0,0 +1,243 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pipeline de conversion en flux : décodage unique vers des flottants, étapes
+ * de transformation en boucles serrées, puis encodage unique au format cible.
+ * Tous les tampons sont alloués à la construction et réutilisés : la mémoire
+ * consommée ne dépend pas de la taille du fichier.
+ *
+ * Le pipeline se présente comme un {@link InputStream} d'octets déjà encodés,
+ * que l'écrivain de fichier n'a plus qu'à recopier.
+ */
+final class PcmPipeline extends InputStream {
+
+    static final int BLOCK_FRAMES = 8192;
+
+    /** Blocs décodés en entrée du pipeline : un {@link PcmDecoder}, ou une branche de {@link PcmFanOut}. */
+    interface Source extends Closeable {
+        AudioFormat getFormat();
+
+        /** Trames à venir, ou {@link AudioSystem#NOT_SPECIFIED}. */
+        long getFrameLength();
+
+        /** Remplit {@code block} ; renvoie le nombre de trames lues, 0 en fin de flux. */
+        int read(PcmBlock block) throws IOException;
+    }
+
+    private final Source source;
+    private final AudioFormat targetFormat;
+    private final PcmStage[] stages;
+    private final long expectedFrames;
+
+    private final PcmBlock decoded;
+    private byte[] encoded;
+    private int encodedPos;
+    private int encodedLength;
+
+    private ConversionMetrics metrics;
+    private long emittedFrames;
+    private boolean sourceDone;
+    private int flushStage;
+    private boolean finished;
+
+    private PcmPipeline(Source source, AudioFormat targetFormat, List<PcmStage> stages) {
+        AudioFormat sourceFormat = source.getFormat();
+        this.source = source;
+        this.targetFormat = targetFormat;
+        this.stages = stages.toArray(new PcmStage[0]);
+        this.expectedFrames = expectedOutputFrames(source.getFrameLength(),
+                sourceFormat.getSampleRate(), targetFormat.getSampleRate());
+
+        this.decoded = new PcmBlock(BLOCK_FRAMES, sourceFormat.getChannels());
+        this.encoded = new byte[BLOCK_FRAMES * targetFormat.getFrameSize()];
+    }
+
+    /**
+     * Construit le pipeline source -> cible. Les encodages non PCM (u-law, a-law...)
+     * sont d'abord décodés en PCM 16 bits par Java Sound, sans changer de taux.
+     * Un gain de 1 n'ajoute aucune étape.
+     */
+    static PcmPipeline create(AudioInputStream source, AudioFormat targetFormat, ResamplerQuality quality,
+                              float gain, boolean softLimit) {
+        return create(new PcmDecoder(PcmDecoder.decodable(source), BLOCK_FRAMES), targetFormat, quality,
+                gain, softLimit);
+    }
+
+    /** Pipeline sur des blocs déjà décodés. */
+    static PcmPipeline create(Source source, AudioFormat targetFormat, ResamplerQuality quality,
+                              float gain, boolean softLimit) {
+        return new PcmPipeline(source, targetFormat, stages(source.getFormat(), targetFormat, quality, gain, softLimit));
+    }
+
+    /** Étapes de transformation source -> cible, dans leur ordre d'application. */
+    static List<PcmStage> stages(AudioFormat format, AudioFormat targetFormat, ResamplerQuality quality,
+                                 float gain, boolean softLimit) {
+        int inChannels = format.getChannels();
+        int outChannels = targetFormat.getChannels();
+        int inRate = Math.round(format.getSampleRate());
+        int outRate = Math.round(targetFormat.getSampleRate());
+
+        // Le mixage passe avant le rééchantillonnage quand il réduit le nombre de canaux
+        List<PcmStage> stages = new ArrayList<>();
+        boolean mixFirst = outChannels < inChannels;
+        if (mixFirst) {
+            stages.add(new ChannelMixStage(inChannels, outChannels, BLOCK_FRAMES));
+        }
+        if (inRate != outRate) {
+            stages.add(new ResampleStage(inRate, outRate, mixFirst ? outChannels : inChannels,
+                    BLOCK_FRAMES, quality));
+        }
+        if (!mixFirst && outChannels != inChannels) {
+            stages.add(new ChannelMixStage(inChannels, outChannels, BLOCK_FRAMES));
+        }
+        if (gain != 1f) {
+            stages.add(new GainStage(gain, softLimit));
+        }
+        return stages;
+    }
+
+    static long expectedOutputFrames(long sourceFrames, float sourceRate, float targetRate) {
+        if (sourceFrames == AudioSystem.NOT_SPECIFIED || sourceFrames < 0) {
+            return AudioSystem.NOT_SPECIFIED;
+        }
+        long inRate = Math.round(sourceRate);
+        long outRate = Math.round(targetRate);
+        if (inRate == outRate) return sourceFrames;
+        long g = ResampleStage.gcd(inRate, outRate);
+        long up = outRate / g;
+        long down = inRate / g;
+        return (sourceFrames * up + down - 1) / down;
+    }
+
+    /** Progression alimentée à chaque bloc source lu (octets et trames consommés). */
+    void setProgress(JobProgress progress) {
+        if (source instanceof PcmDecoder) ((PcmDecoder) source).setProgress(progress);
+    }
+
+    /** Chronométrage des étapes par bloc ; null pour ne rien mesurer. */
+    void setMetrics(ConversionMetrics metrics) {
+        this.metrics = metrics;
+        if (source instanceof PcmDecoder) ((PcmDecoder) source).setMetrics(metrics);
+    }
+
+    AudioFormat getTargetFormat() {
+        return targetFormat;
+    }
+
+    long getExpectedFrames() {
+        return expectedFrames;
+    }
+
+    /** Vue {@link AudioInputStream} du flux encodé, avec la longueur finale déjà connue. */
+    AudioInputStream toAudioInputStream() {
+        return new AudioInputStream(this, targetFormat, expectedFrames);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (encodedPos >= encodedLength && !fill()) return -1;
+
+        int n = Math.min(len, encodedLength - encodedPos);
+        System.arraycopy(encoded, encodedPos, b, off, n);
+        encodedPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return encodedLength - encodedPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /** Produit le prochain bloc encodé ; renvoie faux en fin de flux. */
+    private boolean fill() throws IOException {
+        encodedPos = 0;
+        encodedLength = 0;
+
+        while (encodedLength == 0 && !finished) {
+            // Point d'annulation : un bloc dure quelques millisecondes au plus
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Conversion annulée");
+            }
+            if (!sourceDone) {
+                if (source.read(decoded) <= 0) {
+                    sourceDone = true;
+                    continue;
+                }
+                if (metrics != null) {
+                    long start = System.nanoTime();
+                    PcmBlock transformed = runStages(decoded, 0);
+                    metrics.recordStage(ConversionMetrics.Stage.TRANSFORM, System.nanoTime() - start);
+                    emit(transformed);
+                } else {
+                    emit(runStages(decoded, 0));
+                }
+            } else if (flushStage < stages.length) {
+                // Vidange des historiques de filtre, étape par étape
+                PcmBlock tail = stages[flushStage++].flush();
+                if (tail != null && tail.frames > 0) {
+                    emit(runStages(tail, flushStage));
+                }
+            } else if (expectedFrames > emittedFrames) {
+                emitSilence((int) Math.min(BLOCK_FRAMES, expectedFrames - emittedFrames));
+            } else {
+                finished = true;
+            }
+        }
+        return encodedLength > 0;
+    }
+
+    private PcmBlock runStages(PcmBlock block, int from) {
+        for (int i = from; i < stages.length && block.frames > 0; i++) {
+            block = stages[i].process(block);
+        }
+        return block;
+    }
+
+    private void emit(PcmBlock block) {
+        int frames = block.frames;
+        if (expectedFrames != AudioSystem.NOT_SPECIFIED) {
+            frames = (int) Math.min(frames, expectedFrames - emittedFrames);
+        }
+        if (frames <= 0) return;
+
+        int bytes = frames * targetFormat.getFrameSize();
+        if (encoded.length < bytes) {
+            encoded = new byte[bytes];
+        }
+        long start = metrics != null ? System.nanoTime() : 0;
+        PcmCodec.encode(block.samples, frames * block.channels, targetFormat, encoded);
+        if (metrics != null) {
+            metrics.recordStage(ConversionMetrics.Stage.ENCODE, System.nanoTime() - start);
+        }
+        encodedLength = bytes;
+        emittedFrames += frames;
+    }
+
+    private void emitSilence(int frames) {
+        decoded.ensureCapacity(frames, targetFormat.getChannels());
+        Arrays.fill(decoded.samples, 0, frames * decoded.channels, 0f);
+        decoded.frames = frames;
+        emit(decoded);
+    }
+}
@@ -0,0 +1,164 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Voie rapide pour les changements de conteneur seuls (WAV, AIFF, AU) :
+ * taux, profondeur et canaux identiques, aucun gain. Seul l'en-tête est
+ * réécrit ; la charge PCM est recopiée par {@link FileChannel#transferTo}
+ * quand l'ordre des octets est le même, sinon lue par fenêtres projetées en
+ * mémoire avec permutation des octets (et du bit de signe pour le 8 bits WAV).
+ */
+final class PcmRewrap {
+
+    // Multiple de 1, 2, 3 et 4 octets : une fenêtre ne coupe jamais un échantillon
+    private static final int WINDOW_BYTES = 6 * 1024 * 1024;
+    // Découpage des transferTo : progression régulière, et un arrêt n'attend jamais plus d'un morceau
+    private static final long TRANSFER_BYTES = 8L * 1024 * 1024;
+
+    private PcmRewrap() {
+    }
+
+    /** Vrai si les échantillons source peuvent être recopiés tels quels (à l'ordre des octets près). */
+    static boolean isRewrap(AudioFormat source, AudioFormat target) {
+        return isIntegerPcm(source) && isIntegerPcm(target)
+                && Math.round(source.getSampleRate()) == Math.round(target.getSampleRate())
+                && source.getSampleSizeInBits() == target.getSampleSizeInBits()
+                && source.getChannels() == target.getChannels()
+                && source.getFrameSize() == target.getFrameSize();
+    }
+
+    /** {@code progress} et {@code metrics} peuvent être null. */
+    static void copy(File input, AudioFileLayout layout, File output, AudioFileFormat.Type type,
+                     AudioFormat target, JobProgress progress, ConversionMetrics metrics) throws IOException {
+        AudioFormat source = layout.format;
+        int bytesPerSample = source.getSampleSizeInBits() / 8;
+        boolean swap = bytesPerSample > 1 && source.isBigEndian() != target.isBigEndian();
+        boolean flipSign = !source.getEncoding().equals(target.getEncoding());
+        long frames = layout.frameCount();
+        long length = frames * source.getFrameSize();
+        int frameSize = source.getFrameSize();
+        if (progress != null) {
+            progress.start(length, source.getSampleRate());
+        }
+
+        AudioHeaders.checkLength(type, frames * target.getFrameSize());
+        ByteBuffer header = AudioHeaders.header(type, target, frames);
+        int trailer = AudioHeaders.trailerLength(type, target, frames);
+        try (FileChannel in = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+             AtomicOutput atomic = AtomicOutput.create(output, header.remaining() + length + trailer)) {
+            FileChannel out = atomic.channel();
+
+            writeFully(out, header);
+
+            if (!swap && !flipSign) {
+                long position = layout.dataOffset;
+                long end = layout.dataOffset + length;
+                while (position < end) {
+                    long start = metrics != null ? System.nanoTime() : 0;
+                    long n = in.transferTo(position, Math.min(TRANSFER_BYTES, end - position), out);
+                    if (n <= 0) throw new IOException("Copie interrompue : " + input.getName());
+                    position += n;
+                    if (progress != null) progress.advance(n, n / frameSize);
+                    if (metrics != null) {
+                        // Lecture et écriture confondues dans le noyau : tout est compté en écriture
+                        metrics.recordStage(ConversionMetrics.Stage.WRITE, System.nanoTime() - start);
+                        metrics.recordRead(n, n / frameSize, source.getSampleRate());
+                        metrics.recordWritten(n);
+                    }
+                }
+            } else {
+                byte[] chunk = new byte[(int) Math.min(WINDOW_BYTES, length)];
+                for (long done = 0; done < length; ) {
+                    // Les transferTo sont interrompus par le canal lui-même ; ici, contrôle par fenêtre
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Conversion annulée");
+                    }
+                    int n = (int) Math.min(chunk.length, length - done);
+                    long start = metrics != null ? System.nanoTime() : 0;
+                    MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, layout.dataOffset + done, n);
+                    window.get(chunk, 0, n);
+                    long read = metrics != null ? System.nanoTime() : 0;
+                    transform(chunk, n, bytesPerSample, swap, flipSign ? signByte(target, bytesPerSample) : -1);
+                    long transformed = metrics != null ? System.nanoTime() : 0;
+                    writeFully(out, ByteBuffer.wrap(chunk, 0, n));
+                    done += n;
+                    if (progress != null) progress.advance(n, n / frameSize);
+                    if (metrics != null) {
+                        metrics.recordStage(ConversionMetrics.Stage.DECODE, read - start);
+                        metrics.recordStage(ConversionMetrics.Stage.TRANSFORM, transformed - read);
+                        metrics.recordStage(ConversionMetrics.Stage.WRITE, System.nanoTime() - transformed);
+                        metrics.recordRead(n, n / frameSize, source.getSampleRate());
+                        metrics.recordWritten(n);
+                    }
+                }
+            }
+
+            if (trailer > 0) {
+                writeFully(out, ByteBuffer.allocate(trailer));
+            }
+            atomic.commit();
+        }
+    }
+
+    /** Permute l'ordre des octets de chaque échantillon et/ou inverse son bit de signe. */
+    static void transform(byte[] data, int length, int bytesPerSample, boolean swap, int signByte) {
+        if (swap) {
+            switch (bytesPerSample) {
+                case 2:
+                    for (int i = 0; i < length; i += 2) {
+                        byte t = data[i];
+                        data[i] = data[i + 1];
+                        data[i + 1] = t;
+                    }
+                    break;
+                case 3:
+                    for (int i = 0; i < length; i += 3) {
+                        byte t = data[i];
+                        data[i] = data[i + 2];
+                        data[i + 2] = t;
+                    }
+                    break;
+                case 4:
+                    for (int i = 0; i < length; i += 4) {
+                        byte t0 = data[i];
+                        byte t1 = data[i + 1];
+                        data[i] = data[i + 3];
+                        data[i + 1] = data[i + 2];
+                        data[i + 2] = t1;
+                        data[i + 3] = t0;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (signByte >= 0) {
+            for (int i = signByte; i < length; i += bytesPerSample) {
+                data[i] ^= (byte) 0x80;
+            }
+        }
+    }
+
+    /** Position de l'octet de poids fort dans un échantillon au format cible. */
+    private static int signByte(AudioFormat target, int bytesPerSample) {
+        return target.isBigEndian() ? 0 : bytesPerSample - 1;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static boolean isIntegerPcm(AudioFormat format) {
+        return AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                || AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding());
+    }
+}
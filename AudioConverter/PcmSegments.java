@@ -0,0 +1,269 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Conversion d'un long fichier PCM par segments parallèles (fork/join).
+ * La sortie est découpée en plages de trames ; chaque segment lit sa part
+ * de la source par lectures positionnelles, fait ses propres étapes et écrit
+ * à son décalage calculé dans un fichier dimensionné d'avance.
+ *
+ * Mixage, gain et encodage ne dépendent que de la trame courante. Le
+ * rééchantillonneur, lui, a besoin d'un contexte : chaque segment relit les
+ * quelques trames d'entrée qui précèdent et suivent sa plage (voir
+ * {@link ResampleStage#seek}), si bien que le résultat est identique, octet
+ * pour octet, à une conversion d'un seul tenant.
+ */
+final class PcmSegments {
+
+    /** Plus petit segment : en deçà, le découpage coûte plus qu'il ne rapporte. */
+    static final int MIN_SEGMENT_FRAMES = 1 << 20;
+    /** Fichiers découpés à partir de cette longueur (environ 1 min 30 à 44,1 kHz). */
+    static final long MIN_FILE_FRAMES = 4L * MIN_SEGMENT_FRAMES;
+    // Plusieurs segments par thread : un segment plus lent ne laisse pas les autres cœurs inactifs
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private final AudioFileLayout layout;
+    private final AudioFormat targetFormat;
+    private final ResamplerQuality quality;
+    private final float gain;
+    private final boolean softLimit;
+    private final long inputFrames;
+    private final long outputFrames;
+    private final long outputOffset;
+    private final JobProgress progress;
+    private final ConversionMetrics metrics;
+    private final Thread owner;
+    private FileChannel in;
+    private FileChannel out;
+
+    private PcmSegments(AudioFileLayout layout, AudioFormat targetFormat, ResamplerQuality quality, float gain,
+                        boolean softLimit, long outputOffset, JobProgress progress, ConversionMetrics metrics) {
+        this.layout = layout;
+        this.targetFormat = targetFormat;
+        this.quality = quality;
+        this.gain = gain;
+        this.softLimit = softLimit;
+        this.inputFrames = layout.frameCount();
+        this.outputFrames = PcmPipeline.expectedOutputFrames(inputFrames,
+                layout.format.getSampleRate(), targetFormat.getSampleRate());
+        this.outputOffset = outputOffset;
+        this.progress = progress;
+        this.metrics = metrics;
+        this.owner = Thread.currentThread();
+    }
+
+    /** Vrai si la source se lit directement (PCM de conteneur connu) et mérite d'être découpée. */
+    static boolean isEligible(AudioFileLayout layout) {
+        return layout != null && PcmCodec.isDecodable(layout.format) && layout.frameCount() >= MIN_FILE_FRAMES;
+    }
+
+    /**
+     * Convertit {@code input} en au plus {@code threads} segments simultanés,
+     * sur un pool dédié de cette taille : le thread appelant ne fait qu'attendre,
+     * les segments restent dans la limite de workers de l'utilisateur. Une
+     * interruption du thread appelant arrête tous les segments au bloc suivant ;
+     * {@code progress} et {@code metrics} peuvent être null.
+     */
+    static void convert(File input, AudioFileLayout layout, File output, AudioFileFormat.Type type,
+                        AudioFormat targetFormat, ResamplerQuality quality, float gain, boolean softLimit,
+                        int threads, JobProgress progress, ConversionMetrics metrics) throws IOException {
+        long frames = PcmPipeline.expectedOutputFrames(
+                layout.frameCount(), layout.format.getSampleRate(), targetFormat.getSampleRate());
+        AudioHeaders.checkLength(type, frames * targetFormat.getFrameSize());
+        ByteBuffer header = AudioHeaders.header(type, targetFormat, frames);
+        PcmSegments job = new PcmSegments(layout, targetFormat, quality, gain, softLimit, header.remaining(),
+                progress, metrics);
+        if (progress != null) {
+            progress.start(layout.dataLength, layout.format.getSampleRate());
+        }
+
+        long end = job.outputOffset + job.outputFrames * targetFormat.getFrameSize();
+        int trailer = AudioHeaders.trailerLength(type, targetFormat, job.outputFrames);
+        try (FileChannel source = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+             AtomicOutput atomic = AtomicOutput.create(output, end + trailer)) {
+            job.in = source;
+            job.out = atomic.channel();
+            writeFully(job.out, header, 0);
+
+            long segmentFrames = Math.max(MIN_SEGMENT_FRAMES,
+                    -Math.floorDiv(-job.outputFrames, (long) Math.max(1, threads) * SEGMENTS_PER_THREAD));
+            ForkJoinPool segmentPool = new ForkJoinPool(Math.max(1, threads), pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("conversion-segment-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+            try {
+                segmentPool.invoke(job.new Segment(0, job.outputFrames, segmentFrames));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                segmentPool.shutdown();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Conversion annulée");
+            }
+
+            if (trailer > 0) {
+                writeFully(job.out, ByteBuffer.allocate(trailer), end);
+            }
+            job.out.position(end + trailer); // commit() coupe le fichier à la position courante
+            atomic.commit();
+        }
+    }
+
+    /** Plage de sorties [start, end), coupée en deux jusqu'à la taille d'un segment. */
+    private final class Segment extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final long start;
+        private final long end;
+        private final long segmentFrames;
+
+        Segment(long start, long end, long segmentFrames) {
+            this.start = start;
+            this.end = end;
+            this.segmentFrames = segmentFrames;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= segmentFrames) {
+                try {
+                    convertRange(start, end);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            long middle = start + (end - start) / 2;
+            invokeAll(new Segment(start, middle, segmentFrames), new Segment(middle, end, segmentFrames));
+        }
+    }
+
+    private void convertRange(long outStart, long outEnd) throws IOException {
+        AudioFormat sourceFormat = layout.format;
+        int sourceFrameSize = sourceFormat.getFrameSize();
+        int targetFrameSize = targetFormat.getFrameSize();
+        List<PcmStage> stageList = PcmPipeline.stages(sourceFormat, targetFormat, quality, gain, softLimit);
+        PcmStage[] stages = stageList.toArray(new PcmStage[0]);
+
+        // Sans rééchantillonnage, une trame de sortie par trame d'entrée
+        long inStart = outStart;
+        long inEnd = outEnd;
+        for (PcmStage stage : stages) {
+            if (stage instanceof ResampleStage) {
+                inStart = ((ResampleStage) stage).seek(outStart);
+                inEnd = ((ResampleStage) stage).inputEnd(outEnd);
+            }
+        }
+
+        int blockFrames = PcmPipeline.BLOCK_FRAMES;
+        byte[] raw = new byte[blockFrames * sourceFrameSize];
+        ByteBuffer rawBuffer = ByteBuffer.wrap(raw);
+        PcmBlock block = new PcmBlock(blockFrames, sourceFormat.getChannels());
+        byte[] encoded = new byte[blockFrames * targetFrameSize];
+        long outPosition = outStart;
+
+        for (long frame = inStart; frame < inEnd && outPosition < outEnd; ) {
+            if (owner.isInterrupted()) { // Les segments tournent hors du worker : c'est lui qui est interrompu
+                throw new InterruptedIOException("Conversion annulée");
+            }
+            long start = metrics != null ? System.nanoTime() : 0;
+            int frames = (int) Math.min(blockFrames, inEnd - frame);
+            block.ensureCapacity(frames, sourceFormat.getChannels());
+            if (frame < 0 || frame >= inputFrames) {
+                // Contexte du rééchantillonneur hors du fichier : silence, comme aux bords d'une conversion d'un seul tenant
+                if (frame < 0) frames = (int) Math.min(frames, -frame);
+                Arrays.fill(block.samples, 0, frames * block.channels, 0f);
+            } else {
+                frames = (int) Math.min(frames, inputFrames - frame);
+                int bytes = frames * sourceFrameSize;
+                rawBuffer.clear().limit(bytes);
+                long position = layout.dataOffset + frame * sourceFrameSize;
+                while (rawBuffer.hasRemaining()) {
+                    if (in.read(rawBuffer, position + rawBuffer.position()) < 0) {
+                        throw new IOException("Fichier source tronqué");
+                    }
+                }
+                PcmCodec.decode(raw, 0, frames * block.channels, sourceFormat, block.samples);
+                // Les trames de contexte relues par deux segments ne comptent qu'une fois
+                long own = Math.min(frame + frames, ownedInputEnd(outEnd)) - Math.max(frame, ownedInputStart(outStart));
+                if (own > 0) {
+                    if (progress != null) {
+                        synchronized (progress) {
+                            progress.advance(own * sourceFrameSize, own);
+                        }
+                    }
+                    if (metrics != null) {
+                        metrics.recordRead(own * sourceFrameSize, own, sourceFormat.getSampleRate());
+                    }
+                }
+            }
+            block.frames = frames;
+            frame += frames;
+
+            long decoded = metrics != null ? System.nanoTime() : 0;
+            PcmBlock result = block;
+            for (int i = 0; i < stages.length && result.frames > 0; i++) {
+                result = stages[i].process(result);
+            }
+            long transformed = metrics != null ? System.nanoTime() : 0;
+
+            int count = (int) Math.min(result.frames, outEnd - outPosition);
+            if (count <= 0) continue;
+            if (encoded.length < count * targetFrameSize) {
+                encoded = new byte[count * targetFrameSize];
+            }
+            PcmCodec.encode(result.samples, count * result.channels, targetFormat, encoded);
+            long encodedAt = metrics != null ? System.nanoTime() : 0;
+            writeFully(out, ByteBuffer.wrap(encoded, 0, count * targetFrameSize),
+                    outputOffset + outPosition * targetFrameSize);
+            outPosition += count;
+            if (metrics != null) {
+                metrics.recordStage(ConversionMetrics.Stage.DECODE, decoded - start);
+                metrics.recordStage(ConversionMetrics.Stage.TRANSFORM, transformed - decoded);
+                metrics.recordStage(ConversionMetrics.Stage.ENCODE, encodedAt - transformed);
+                metrics.recordStage(ConversionMetrics.Stage.WRITE, System.nanoTime() - encodedAt);
+                metrics.recordWritten((long) count * targetFrameSize);
+            }
+        }
+        if (outPosition != outEnd) {
+            throw new IOException("Segment incomplet : " + (outPosition - outStart) + " trame(s) sur "
+                    + (outEnd - outStart));
+        }
+    }
+
+    /** Première trame d'entrée attribuée au segment qui commence à la sortie {@code outStart}. */
+    private long ownedInputStart(long outStart) {
+        return outStart == 0 ? 0 : inputPosition(outStart);
+    }
+
+    private long ownedInputEnd(long outEnd) {
+        return outEnd == outputFrames ? inputFrames : inputPosition(outEnd);
+    }
+
+    private long inputPosition(long outputFrame) {
+        long inRate = Math.round(layout.format.getSampleRate());
+        long outRate = Math.round(targetFormat.getSampleRate());
+        return outputFrame * inRate / outRate;
+    }
+
+    /** Écriture positionnelle : plusieurs segments écrivent en même temps dans le même canal. */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Étape de transformation du pipeline PCM (taux, canaux, gain...).
+ * Une étape peut travailler sur place et renvoyer le bloc reçu, ou écrire
+ * dans son propre bloc de sortie réutilisable.
+ */
+interface PcmStage {
+
+    PcmBlock process(PcmBlock in);
+
+    /** Trames retenues par l'étape (historique de filtre), émises en fin de flux. */
+    default PcmBlock flush() {
+        return null;
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table de coefficients polyphase pour un rapport de fréquences L/M donné.
+ * La trame de sortie n tombe à la position n * M / L de l'entrée : l'indice
+ * entier donne la fenêtre d'entrée, le reste (n * M) mod L la phase, c'est-à-dire
+ * la ligne de la table à appliquer. Les tables sont calculées une seule fois
+ * par couple (taux source, taux cible, qualité) puis partagées entre workers.
+ */
+final class PolyphaseFilter {
+
+    private static final Map<String, PolyphaseFilter> CACHE = new ConcurrentHashMap<>();
+
+    final int up;
+    final int down;
+    final int taps;
+    /** Coefficients rangés phase par phase : {@code coefficients[phase * taps + k]}. */
+    final float[] coefficients;
+
+    private PolyphaseFilter(int up, int down, int taps, float[] coefficients) {
+        this.up = up;
+        this.down = down;
+        this.taps = taps;
+        this.coefficients = coefficients;
+    }
+
+    static PolyphaseFilter forRates(int inputRate, int outputRate, ResamplerQuality quality) {
+        String key = inputRate + ">" + outputRate + ":" + quality.name();
+        return CACHE.computeIfAbsent(key, k -> design(inputRate, outputRate, quality));
+    }
+
+    /** Nombre de trames d'entrée nécessaires avant la position courante. */
+    int leftContext() {
+        return taps / 2 - 1;
+    }
+
+    /** Nombre de trames d'entrée nécessaires après la position courante. */
+    int rightContext() {
+        return taps / 2;
+    }
+
+    private static PolyphaseFilter design(int inputRate, int outputRate, ResamplerQuality quality) {
+        int g = (int) ResampleStage.gcd(inputRate, outputRate);
+        int up = outputRate / g;
+        int down = inputRate / g;
+
+        if (quality == ResamplerQuality.FAST) {
+            // Interpolation linéaire : deux coefficients par phase
+            float[] table = new float[up * 2];
+            for (int p = 0; p < up; p++) {
+                float frac = (float) p / up;
+                table[p * 2] = 1f - frac;
+                table[p * 2 + 1] = frac;
+            }
+            return new PolyphaseFilter(up, down, 2, table);
+        }
+
+        // Sinc fenêtré (Kaiser) ; coupure abaissée sous la nouvelle fréquence de Nyquist
+        double cutoff = Math.min(1.0, (double) up / down) * quality.rolloff;
+        int taps = (int) Math.ceil(quality.taps / Math.min(1.0, (double) up / down));
+        taps += taps & 1;
+        int half = taps / 2;
+
+        float[] table = new float[up * taps];
+        double i0Beta = besselI0(quality.kaiserBeta);
+        for (int p = 0; p < up; p++) {
+            double sum = 0;
+            for (int k = 0; k < taps; k++) {
+                double d = (k - half + 1) - (double) p / up;
+                double x = d / half;
+                double window = Math.abs(x) >= 1 ? 0
+                        : besselI0(quality.kaiserBeta * Math.sqrt(1 - x * x)) / i0Beta;
+                double value = cutoff * sinc(cutoff * d) * window;
+                table[p * taps + k] = (float) value;
+                sum += value;
+            }
+            // Gain unitaire exact pour chaque phase : pas d'ondulation du continu
+            for (int k = 0; k < taps; k++) {
+                table[p * taps + k] = (float) (table[p * taps + k] / sum);
+            }
+        }
+        return new PolyphaseFilter(up, down, taps, table);
+    }
+
+    private static double sinc(double x) {
+        if (Math.abs(x) < 1e-12) return 1.0;
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double halfX = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < sum * 1e-12) break;
+        }
+        return sum;
+    }
+}
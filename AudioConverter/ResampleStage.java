@@ -0,0 +1,156 @@
+/**
+ * Changement de fréquence d'échantillonnage par filtre polyphase.
+ * Le rapport est réduit à L/M (L = sortie, M = entrée) et chaque trame de
+ * sortie n est positionnée exactement en n * M / L trames d'entrée, sans
+ * dérive d'arrondi quelle que soit la longueur du fichier. Les coefficients
+ * viennent d'une {@link PolyphaseFilter} partagée ; le traitement se fait par
+ * blocs, sans allocation par échantillon.
+ */
+final class ResampleStage implements PcmStage {
+
+    private final PolyphaseFilter filter;
+    private final int channels;
+    private final long up;
+    private final long down;
+    private final int taps;
+    private final int left;
+    private final int right;
+    private final float[] silence;
+    private final PcmBlock out;
+
+    // Trames d'entrée encore nécessaires (historique + bloc courant)
+    private float[] buffer;
+    private int buffered;
+    private long bufferStart;
+    private long outIndex;
+
+    ResampleStage(int inputRate, int outputRate, int channels, int blockFrames, ResamplerQuality quality) {
+        this.filter = PolyphaseFilter.forRates(inputRate, outputRate, quality);
+        this.channels = channels;
+        this.up = filter.up;
+        this.down = filter.down;
+        this.taps = filter.taps;
+        this.left = filter.leftContext();
+        this.right = filter.rightContext();
+        this.silence = new float[Math.max(left, right) * channels];
+        this.buffer = new float[(blockFrames + taps) * channels];
+        this.out = new PcmBlock((int) (blockFrames * up / down) + 2, channels);
+
+        // Contexte gauche de la première trame : silence avant le début du fichier
+        this.buffered = left;
+        this.bufferStart = -left;
+    }
+
+    /**
+     * Reprend le calcul à la trame de sortie {@code outputFrame}, pour un
+     * segment converti indépendamment du reste du fichier. Renvoie la première
+     * trame d'entrée attendue, négative en début de fichier (silence) ; les
+     * trames sont ensuite fournies dans l'ordre à partir de celle-ci, et les
+     * sorties sont identiques à celles d'un traitement d'un seul tenant.
+     */
+    long seek(long outputFrame) {
+        outIndex = outputFrame;
+        bufferStart = (outputFrame * down) / up - left;
+        buffered = 0;
+        return bufferStart;
+    }
+
+    /** Trame d'entrée (exclue) jusqu'à laquelle lire pour produire les sorties avant {@code outputEnd}. */
+    long inputEnd(long outputEnd) {
+        return ((outputEnd - 1) * down) / up + right + 1;
+    }
+
+    @Override
+    public PcmBlock process(PcmBlock in) {
+        append(in.samples, in.frames);
+        return produce();
+    }
+
+    @Override
+    public PcmBlock flush() {
+        // Contexte droit des dernières trames réelles
+        append(silence, right);
+        return produce();
+    }
+
+    private void append(float[] samples, int frames) {
+        int needed = (buffered + frames) * channels;
+        if (buffer.length < needed) {
+            float[] grown = new float[needed];
+            System.arraycopy(buffer, 0, grown, 0, buffered * channels);
+            buffer = grown;
+        }
+        System.arraycopy(samples, 0, buffer, buffered * channels, frames * channels);
+        buffered += frames;
+    }
+
+    private PcmBlock produce() {
+        long available = bufferStart + buffered;
+        int maxOut = (int) Math.max(0, ((available - right) * up) / down - outIndex + 1);
+        out.ensureCapacity(maxOut, channels);
+
+        float[] src = buffer;
+        float[] dst = out.samples;
+        float[] coeffs = filter.coefficients;
+        int ch = channels;
+        int produced = 0;
+
+        while (true) {
+            long t = outIndex * down;
+            long i = t / up;
+            if (i + right >= available) break;
+
+            int row = (int) (t - i * up) * taps;
+            int s = (int) (i - left - bufferStart) * ch;
+            int d = produced * ch;
+
+            if (ch == 1) {
+                float acc = 0;
+                for (int k = 0; k < taps; k++) {
+                    acc += coeffs[row + k] * src[s + k];
+                }
+                dst[d] = acc;
+            } else if (ch == 2) {
+                float accL = 0;
+                float accR = 0;
+                for (int k = 0, x = s; k < taps; k++, x += 2) {
+                    float h = coeffs[row + k];
+                    accL += h * src[x];
+                    accR += h * src[x + 1];
+                }
+                dst[d] = accL;
+                dst[d + 1] = accR;
+            } else {
+                for (int c = 0; c < ch; c++) {
+                    float acc = 0;
+                    for (int k = 0, x = s + c; k < taps; k++, x += ch) {
+                        acc += coeffs[row + k] * src[x];
+                    }
+                    dst[d + c] = acc;
+                }
+            }
+            produced++;
+            outIndex++;
+        }
+        out.frames = produced;
+
+        // On ne conserve que les trames encore utiles à la prochaine sortie
+        long keepFrom = Math.min((outIndex * down) / up - left, available);
+        int drop = (int) (keepFrom - bufferStart);
+        if (drop > 0) {
+            System.arraycopy(src, drop * ch, src, 0, (buffered - drop) * ch);
+            buffered -= drop;
+            bufferStart = keepFrom;
+        }
+        return out;
+    }
+
+    static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Niveaux qualité / vitesse du rééchantillonneur polyphase.
+ * Le nombre de coefficients par phase est donné pour un suréchantillonnage ;
+ * il est allongé en proportion lors d'un sous-échantillonnage.
+ */
+enum ResamplerQuality {
+    FAST("Rapide (linéaire)", 2, 0, 1.0),
+    STANDARD("Standard", 16, 6.0, 0.90),
+    HIGH("Haute", 32, 8.0, 0.94),
+    BEST("Maximale", 64, 10.0, 0.97);
+
+    final String label;
+    final int taps;
+    final double kaiserBeta;
+    final double rolloff;
+
+    ResamplerQuality(String label, int taps, double kaiserBeta, double rolloff) {
+        this.label = label;
+        this.taps = taps;
+        this.kaiserBeta = kaiserBeta;
+        this.rolloff = rolloff;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,36 @@
+import java.text.DecimalFormat;
+
+/** Mise en forme des tailles et durées affichées (interface, journal, ligne de commande). */
+final class TextFormats {
+
+    // DecimalFormat n'est pas thread-safe : une instance par thread plutôt qu'une par appel
+    private static final ThreadLocal<DecimalFormat> TWO_DECIMALS = ThreadLocal.withInitial(() -> new DecimalFormat("#.##"));
+    private static final ThreadLocal<DecimalFormat> ONE_DECIMAL = ThreadLocal.withInitial(() -> new DecimalFormat("#.#"));
+
+    private TextFormats() {
+    }
+
+    static String formatFileSize(long bytes) {
+        DecimalFormat df = TWO_DECIMALS.get();
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024L * 1024L) return df.format(bytes / 1024.0) + " KB";
+        if (bytes < 1024L * 1024L * 1024L) return df.format(bytes / (1024.0 * 1024.0)) + " MB";
+        return df.format(bytes / (1024.0 * 1024.0 * 1024.0)) + " GB";
+    }
+
+    static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        long hours = total / 3600;
+        long minutes = (total % 3600) / 60;
+        long secs = total % 60;
+        return hours > 0
+                ? String.format("%d:%02d:%02d", hours, minutes, secs)
+                : String.format("%d:%02d", minutes, secs);
+    }
+
+    /** Durée courte (latence d'un bloc) : µs en dessous de la milliseconde, ms au-delà. */
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000_000) return Math.max(1, Math.round(nanos / 1e3)) + " µs";
+        return ONE_DECIMAL.get().format(nanos / 1e6) + " ms";
+    }
+}
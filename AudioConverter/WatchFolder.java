@@ -0,0 +1,339 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Dossier surveillé : les fichiers audio qui y arrivent (sous-dossiers
+ * compris) sont convertis au fil de l'eau vers les cibles courantes.
+ *
+ * Un fichier n'est pris qu'une fois sa copie terminée : taille et date
+ * inchangées pendant {@link #STABLE_MS}, et ouverture en lecture possible.
+ * Le nombre de fichiers confiés au pool est borné ; en cas d'afflux, les
+ * suivants restent sur le disque et seuls leurs chemins sont suivis, dans
+ * la limite de {@link #MAX_TRACKED}. Au-delà (ou si le système perd des
+ * événements), le dossier est simplement reparcouru une fois la file
+ * résorbée : la mémoire reste constante quelle que soit la durée de
+ * fonctionnement.
+ */
+final class WatchFolder implements AutoCloseable {
+
+    /** Événements du dossier, appelés depuis le thread de surveillance ou les workers. */
+    interface Listener extends ConversionEngine.Listener {
+        /** Fichier stable, confié au pool de conversion. */
+        default void jobQueued(AudioFile audioFile) {
+        }
+    }
+
+    static final long STABLE_MS = 2000;
+    private static final long TICK_MS = 500;
+    private static final int MAX_TRACKED = 10_000;
+
+    private final ConversionEngine engine;
+    private final Path root;
+    private final Listener listener;
+    private final Consumer<String> log;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final Semaphore slots;
+    private volatile List<ConversionPreset> targets;
+    private volatile boolean closed;
+
+    // Propres au thread de surveillance
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Map<Path, Candidate> candidates = new LinkedHashMap<>(); // Ordre d'arrivée
+    private boolean rescanNeeded;
+
+    // Fichiers stables en attente d'une place, puis confiés au pool : relancés dès qu'une place se libère
+    private final Queue<Path> ready = new ConcurrentLinkedQueue<>();
+    private final Set<Path> claimed = ConcurrentHashMap.newKeySet(); // En attente ou confiés au pool
+
+    /**
+     * @param maxInFlight fichiers confiés au pool en même temps (en attente ou en cours)
+     */
+    WatchFolder(ConversionEngine engine, File directory, List<ConversionPreset> targets, int maxInFlight,
+                Listener listener, Consumer<String> log) throws IOException {
+        this.engine = engine;
+        this.root = directory.toPath().toAbsolutePath().normalize();
+        this.targets = targets;
+        this.slots = new Semaphore(Math.max(1, maxInFlight));
+        this.listener = listener;
+        this.log = log;
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Dossier introuvable : " + root);
+        }
+        if (root.startsWith(outputDirectory())) {
+            throw new IOException("Le dossier surveillé ne peut pas se trouver dans le dossier de sortie");
+        }
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            register(root);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "watch-folder");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        engine.clearStop();
+        thread.start();
+        log.accept("Surveillance de " + root + " (fichiers stables depuis " + STABLE_MS / 1000 + " s)");
+    }
+
+    /** Cibles des prochains fichiers (dossier de sortie compris) ; ceux déjà confiés au pool gardent les leurs. */
+    void setTargets(List<ConversionPreset> targets) {
+        this.targets = targets;
+    }
+
+    Path getDirectory() {
+        return root;
+    }
+
+    /** Dossier de sortie courant : jamais surveillé, pour ne pas reconvertir nos propres fichiers. */
+    private Path outputDirectory() {
+        return targets.get(0).outputDirectory.toPath().toAbsolutePath().normalize();
+    }
+
+    /** Arrête la surveillance ; les conversions déjà confiées au pool se terminent. */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close(); // Réveille le thread bloqué dans poll()
+        } catch (IOException ignored) {
+            // Rien à libérer de plus
+        }
+        thread.interrupt();
+    }
+
+    // ==================== SURVEILLANCE ====================
+
+    private void run() {
+        // Fichiers déjà présents : seuls ceux sans sortie à jour sont convertis
+        scan(root);
+        try {
+            while (!closed) {
+                WatchKey key = watchService.poll(TICK_MS, TimeUnit.MILLISECONDS);
+                for (; key != null; key = watchService.poll()) {
+                    handle(key);
+                }
+                if (rescanNeeded && candidates.isEmpty() && ready.isEmpty()) {
+                    rescanNeeded = false;
+                    scan(root);
+                }
+                dispatchStable();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Fermeture
+        } catch (RuntimeException e) {
+            // Chaque fichier est déjà protégé : ne reste qu'une panne du parcours lui-même
+            log.accept("Surveillance de " + root + " arrêtée : " + e);
+            e.printStackTrace();
+        } finally {
+            candidates.clear();
+            ready.clear();
+            directories.clear();
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                rescanNeeded = true; // Événements perdus : le dossier sera reparcouru
+                continue;
+            }
+            try {
+                handle(directory, event);
+            } catch (RuntimeException e) {
+                log.accept("Événement ignoré dans " + directory + " : " + e);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key); // Dossier supprimé
+        }
+    }
+
+    private void handle(Path directory, WatchEvent<?> event) {
+        Path path = directory.resolve((Path) event.context());
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && !path.startsWith(outputDirectory())) {
+                // Dossier déposé d'un bloc : son contenu n'émettra pas d'événement
+                try {
+                    register(path);
+                } catch (IOException e) {
+                    log.accept("Sous-dossier non surveillé : " + path + " (" + e.getMessage() + ")");
+                }
+                scan(path);
+            }
+        } else if (event.kind() != StandardWatchEventKinds.ENTRY_DELETE) {
+            track(path);
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+                if (dir.startsWith(outputDirectory())) return FileVisitResult.SKIP_SUBTREE;
+                directories.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Parcours d'un dossier : suit les fichiers dont une sortie manque ou est plus ancienne. */
+    private void scan(Path directory) {
+        if (directory.startsWith(outputDirectory())) return;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (closed) return;
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    scan(entry);
+                } else if (!isUpToDate(entry)) {
+                    track(entry);
+                }
+            }
+        } catch (IOException e) {
+            log.accept("Dossier illisible : " + directory + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private boolean isUpToDate(Path path) {
+        long modified = path.toFile().lastModified();
+        for (ConversionPreset target : targets) {
+            File output = new File(target.outputDirectory, target.getOutputFileName(path.toFile()));
+            if (!output.isFile() || output.lastModified() < modified) return false;
+        }
+        return true;
+    }
+
+    private void track(Path path) {
+        if (candidates.containsKey(path) || claimed.contains(path)) return;
+        String name = path.getFileName().toString();
+        // Fichiers cachés (temporaires d'écriture, y compris les nôtres) et sorties ignorés
+        if (name.startsWith(".") || path.startsWith(outputDirectory())) return;
+        if (engine.findBackend(path.toFile()) == null) return;
+        if (candidates.size() + claimed.size() >= MAX_TRACKED) {
+            rescanNeeded = true; // Il sera retrouvé sur le disque une fois la file résorbée
+            return;
+        }
+        candidates.put(path, new Candidate());
+    }
+
+    // ==================== STABILITÉ ET ENVOI ====================
+
+    private void dispatchStable() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Path, Candidate>> it = candidates.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Candidate> entry = it.next();
+            Path path = entry.getKey();
+            Candidate candidate = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                it.remove(); // Supprimé ou déplacé avant la fin de la copie
+                continue;
+            }
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (size != candidate.size || modified != candidate.modified) {
+                candidate.size = size;
+                candidate.modified = modified;
+                candidate.stableSince = now;
+                continue;
+            }
+            if (now - candidate.stableSince < STABLE_MS || !isReadable(path)) continue;
+
+            it.remove();
+            claimed.add(path);
+            ready.add(path);
+        }
+        dispatchReady();
+    }
+
+    /**
+     * Contre-pression : au plus {@code maxInFlight} fichiers confiés au pool,
+     * les suivants attendent ici. Appelé par le thread de surveillance et par
+     * chaque worker qui libère une place.
+     */
+    private void dispatchReady() {
+        while (!closed && !ready.isEmpty() && slots.tryAcquire()) {
+            Path path = ready.poll();
+            if (path == null) {
+                slots.release(); // Pris entre-temps par un autre thread
+                return;
+            }
+            dispatch(path);
+        }
+    }
+
+    /** Un fichier encore verrouillé par l'application qui le copie (Windows) n'est pas ouvrable. */
+    private static boolean isReadable(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.size() >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Confie un fichier au pool ; en cas d'échec, sa place et sa réservation sont rendues. */
+    private void dispatch(Path path) {
+        try {
+            AudioFile audioFile = new AudioFile(path.toFile());
+            audioFile.probe();
+            listener.jobQueued(audioFile);
+            engine.submit(audioFile, targets, listener).whenComplete((finished, error) -> {
+                claimed.remove(path);
+                slots.release();
+                dispatchReady();
+            });
+        } catch (RejectedExecutionException e) {
+            claimed.remove(path); // Moteur arrêté
+            slots.release();
+        } catch (RuntimeException e) {
+            // Un fichier aberrant ne doit pas arrêter une surveillance de plusieurs semaines
+            claimed.remove(path);
+            slots.release();
+            log.accept("Fichier ignoré : " + path.getFileName() + " (" + e + ")");
+        }
+    }
+
+    /** Dernier état observé d'un fichier en cours d'arrivée. */
+    private static final class Candidate {
+        long size = -1;
+        long modified = -1;
+        long stableSince;
+    }
+}
@@ -0,0 +1,65 @@
+package audioconverter.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sound.sampled.AudioFormat;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changement de profondeur : décodage des entiers vers les flottants du
+ * pipeline puis encodage au format cible, pour un bloc stéréo de 8192 trames,
+ * à chaque profondeur de l'interface (QUALITY_PRESETS) et dans les deux ordres d'octets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final MethodHandle DECODE = Internals.method("PcmCodec", "decode",
+            byte[].class, int.class, int.class, AudioFormat.class, float[].class);
+    private static final MethodHandle ENCODE = Internals.method("PcmCodec", "encode",
+            float[].class, int.class, AudioFormat.class, byte[].class);
+
+    @Param({"8", "16", "24", "32"})
+    public int bits;
+
+    @Param({"false", "true"})
+    public boolean bigEndian;
+
+    private AudioFormat format;
+    private float[] samples;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        format = Fixtures.pcm(Fixtures.SOURCE_RATE, bits, 2, bigEndian);
+        samples = Fixtures.signal(Fixtures.BLOCK_FRAMES, 2, Fixtures.SOURCE_RATE);
+        bytes = Fixtures.encode(samples, format);
+    }
+
+    @Benchmark
+    public float[] decode() throws Throwable {
+        DECODE.invokeExact(bytes, 0, samples.length, format, samples);
+        return samples;
+    }
+
+    @Benchmark
+    public byte[] encode() throws Throwable {
+        ENCODE.invokeExact(samples, samples.length, format, bytes);
+        return bytes;
+    }
+}
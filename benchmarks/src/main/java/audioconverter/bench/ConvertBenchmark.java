@@ -0,0 +1,83 @@
+package audioconverter.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Conversion complète d'un fichier (ConversionEngine.convert) : lecture,
+ * pipeline, écriture atomique. Source : 10 s de WAV 16 bits stéréo à 44,1 kHz,
+ * converties vers chaque couple profondeur × fréquence de l'interface. Le
+ * couple 16 bits / 44100 Hz passe par la copie directe, comme dans l'application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertBenchmark {
+
+    private static final MethodHandle NEW_AUDIO_FILE = Internals.constructor("AudioFile", File.class)
+            .asType(MethodType.methodType(Object.class, File.class));
+    private static final MethodHandle CONVERT = Internals.genericMethod("ConversionEngine", "convert",
+            Internals.type("AudioFile"), Internals.type("ConversionPreset"));
+
+    @Param({"8", "16", "24", "32"})
+    public int bits;
+
+    @Param({"8000", "11025", "16000", "22050", "44100", "48000", "96000", "192000"})
+    public int rate;
+
+    private File directory;
+    private File source;
+    private Object engine;
+    private Object preset;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audioconverter-bench").toFile();
+        source = Fixtures.wave(directory, 10);
+        File output = new File(directory, "out");
+        Files.createDirectories(output.toPath());
+        Consumer<String> silentLog = message -> { };
+        engine = Internals.newInstance("ConversionEngine",
+                new Class<?>[]{int.class, int.class, Consumer.class}, 1, 1, silentLog);
+        preset = Internals.newInstance("ConversionPreset",
+                new Class<?>[]{String.class, float.class, int.class, int.class, float.class, boolean.class,
+                        Internals.type("ResamplerQuality"), File.class},
+                "WAV", (float) rate, bits, 2, 1f, true, Internals.enumValue("ResamplerQuality", "HIGH"),
+                output);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Internals.invoke(Internals.method("ConversionEngine", "shutdown"), engine);
+        Fixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public boolean convert() throws Throwable {
+        Object audioFile = (Object) NEW_AUDIO_FILE.invokeExact(source);
+        boolean success = (boolean) (Object) CONVERT.invokeExact(engine, audioFile, preset);
+        if (!success) throw new IllegalStateException("Conversion échouée : " + bits + " bits, " + rate + " Hz");
+        return success;
+    }
+}
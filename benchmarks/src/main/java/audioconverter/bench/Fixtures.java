@@ -0,0 +1,80 @@
+package audioconverter.bench;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Signaux de test générés au lancement du benchmark : rien n'est versionné.
+ * Deux sinusoïdes et un bruit léger, pour que le limiteur, le filtre et
+ * l'encodeur traitent un contenu proche de la musique plutôt que du silence.
+ */
+final class Fixtures {
+
+    static final int BLOCK_FRAMES = 8192;
+    static final int SOURCE_RATE = 44100;
+
+    private Fixtures() {
+    }
+
+    /** Échantillons flottants entrelacés dans [-0.9, 0.9]. */
+    static float[] signal(int frames, int channels, int rate) {
+        SplittableRandom random = new SplittableRandom(42);
+        float[] samples = new float[frames * channels];
+        for (int f = 0, i = 0; f < frames; f++) {
+            double t = (double) f / rate;
+            double base = 0.5 * Math.sin(2 * Math.PI * 440 * t) + 0.3 * Math.sin(2 * Math.PI * 3150 * t);
+            for (int c = 0; c < channels; c++) {
+                samples[i++] = (float) (base + 0.1 * (random.nextDouble() * 2 - 1));
+            }
+        }
+        return samples;
+    }
+
+    static AudioFormat pcm(int rate, int bits, int channels, boolean bigEndian) {
+        return new AudioFormat(bits == 8 && !bigEndian ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED,
+                rate, bits, channels, channels * bits / 8, rate, bigEndian);
+    }
+
+    /** Octets PCM entiers pour {@code format}, encodés par la même routine que l'application. */
+    static byte[] encode(float[] samples, AudioFormat format) {
+        byte[] bytes = new byte[samples.length * format.getSampleSizeInBits() / 8];
+        Internals.invoke(Internals.method("PcmCodec", "encode", float[].class, int.class, AudioFormat.class, byte[].class),
+                samples, samples.length, format, bytes);
+        return bytes;
+    }
+
+    /** Fichier WAV 16 bits stéréo à 44,1 kHz de {@code seconds} secondes. */
+    static File wave(File directory, double seconds) throws IOException {
+        int frames = (int) (seconds * SOURCE_RATE);
+        AudioFormat format = pcm(SOURCE_RATE, 16, 2, false);
+        byte[] data = encode(signal(frames, 2, SOURCE_RATE), format);
+        File file = new File(directory, "source.wav");
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format, frames)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        }
+        return file;
+    }
+
+    /** Bloc PCM de l'application rempli avec {@code samples}. */
+    static Object block(float[] samples, int channels) {
+        Object block = Internals.newInstance("PcmBlock", new Class<?>[]{int.class, int.class},
+                samples.length / channels, channels);
+        Internals.set(block, "samples", samples);
+        Internals.set(block, "frames", samples.length / channels);
+        return block;
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,96 @@
+package audioconverter.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Accès aux classes de l'application, qui vivent dans le paquet par défaut
+ * (impossible à importer depuis un paquet nommé, et JMH refuse les benchmarks
+ * sans paquet). Les méthodes mesurées sont résolues une fois en
+ * {@link MethodHandle} gardés dans des champs {@code static final} : le JIT
+ * les traite comme des appels directs, sans coût de réflexion par itération.
+ */
+final class Internals {
+
+    private Internals() {
+    }
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Classe introuvable (jar de l'application absent ?) : " + name, e);
+        }
+    }
+
+    static MethodHandle constructor(String className, Class<?>... parameters) {
+        try {
+            Constructor<?> constructor = type(className).getDeclaredConstructor(parameters);
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Méthode statique ou d'instance ; pour une méthode d'instance, le receveur est le premier argument. */
+    static MethodHandle method(String className, String name, Class<?>... parameters) {
+        try {
+            Method method = type(className).getDeclaredMethod(name, parameters);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Même chose, avec tous les types ramenés à {@code Object} pour un {@code invokeExact} sans classes nommées. */
+    static MethodHandle genericMethod(String className, String name, Class<?>... parameters) {
+        MethodHandle handle = method(className, name, parameters);
+        return handle.asType(handle.type().generic());
+    }
+
+    static Object newInstance(String className, Class<?>[] parameters, Object... arguments) {
+        try {
+            return constructor(className, parameters).invokeWithArguments(arguments);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static Object invoke(MethodHandle handle, Object... arguments) {
+        try {
+            return handle.invokeWithArguments(arguments);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static Object get(Object target, String field) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            return f.get(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void set(Object target, String field, Object value) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object enumValue(String className, String constant) {
+        return Enum.valueOf((Class) type(className), constant);
+    }
+}
@@ -0,0 +1,55 @@
+package audioconverter.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rééchantillonnage d'un bloc stéréo de 8192 trames à 44,1 kHz vers chaque
+ * fréquence de l'interface, pour chaque qualité. 44100 Hz est absent : le
+ * pipeline n'ajoute alors aucune étape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResampleBenchmark {
+
+    private static final MethodHandle PROCESS = Internals.genericMethod("ResampleStage", "process",
+            Internals.type("PcmBlock"));
+
+    @Param({"8000", "11025", "16000", "22050", "48000", "96000", "192000"})
+    public int rate;
+
+    @Param({"FAST", "STANDARD", "HIGH", "BEST"})
+    public String quality;
+
+    private Object stage;
+    private Object block;
+
+    @Setup
+    public void setUp() {
+        stage = Internals.newInstance("ResampleStage",
+                new Class<?>[]{int.class, int.class, int.class, int.class, Internals.type("ResamplerQuality")},
+                Fixtures.SOURCE_RATE, rate, 2, Fixtures.BLOCK_FRAMES, Internals.enumValue("ResamplerQuality", quality));
+        block = Fixtures.block(Fixtures.signal(Fixtures.BLOCK_FRAMES, 2, Fixtures.SOURCE_RATE), 2);
+    }
+
+    @Benchmark
+    public Object resample() throws Throwable {
+        return (Object) PROCESS.invokeExact(stage, block);
+    }
+}
@@ -0,0 +1,102 @@
+package audioconverter.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Étapes sur flottants (mixage des canaux, gain avec limiteur doux) et
+ * permutation d'octets de la copie directe, par bloc de 8192 trames. Les
+ * étapes flottantes ne dépendent ni de la profondeur ni de la fréquence : seule
+ * la permutation est mesurée à chaque profondeur (en 8 bits, c'est l'inversion
+ * du bit de signe entre WAV non signé et AIFF signé).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+    private static final MethodHandle MIX = Internals.genericMethod("ChannelMixStage", "process",
+            Internals.type("PcmBlock"));
+    private static final MethodHandle GAIN = Internals.genericMethod("GainStage", "process",
+            Internals.type("PcmBlock"));
+    private static final MethodHandle TRANSFORM = Internals.method("PcmRewrap", "transform",
+            byte[].class, int.class, int.class, boolean.class, int.class);
+
+    /** Seule la permutation d'octets dépend de la profondeur. */
+    @State(Scope.Thread)
+    public static class Samples {
+        @Param({"8", "16", "24", "32"})
+        public int bits;
+
+        byte[] bytes;
+
+        @Setup
+        public void setUp() {
+            float[] signal = Fixtures.signal(Fixtures.BLOCK_FRAMES, 2, Fixtures.SOURCE_RATE);
+            bytes = Fixtures.encode(signal, Fixtures.pcm(Fixtures.SOURCE_RATE, bits, 2, false));
+        }
+    }
+
+    private Object downmix;
+    private Object upmix;
+    private Object gain;
+    private Object stereo;
+    private Object mono;
+    private Object gainBlock;
+    private float[] gainSource;
+    private float[] gainSamples;
+
+    @Setup
+    public void setUp() {
+        Class<?>[] mixParameters = {int.class, int.class, int.class};
+        downmix = Internals.newInstance("ChannelMixStage", mixParameters, 2, 1, Fixtures.BLOCK_FRAMES);
+        upmix = Internals.newInstance("ChannelMixStage", mixParameters, 1, 2, Fixtures.BLOCK_FRAMES);
+        gain = Internals.newInstance("GainStage", new Class<?>[]{float.class, boolean.class}, 1.5f, true);
+
+        stereo = Fixtures.block(Fixtures.signal(Fixtures.BLOCK_FRAMES, 2, Fixtures.SOURCE_RATE), 2);
+        mono = Fixtures.block(Fixtures.signal(Fixtures.BLOCK_FRAMES, 1, Fixtures.SOURCE_RATE), 1);
+        gainSource = Fixtures.signal(Fixtures.BLOCK_FRAMES, 2, Fixtures.SOURCE_RATE);
+        gainBlock = Fixtures.block(gainSource.clone(), 2);
+        gainSamples = (float[]) Internals.get(gainBlock, "samples");
+    }
+
+    @Benchmark
+    public Object mixStereoToMono() throws Throwable {
+        return (Object) MIX.invokeExact(downmix, stereo);
+    }
+
+    @Benchmark
+    public Object mixMonoToStereo() throws Throwable {
+        return (Object) MIX.invokeExact(upmix, mono);
+    }
+
+    /** Le gain travaille sur place : le bloc est rétabli à chaque appel (une recopie de 64 Ko comprise dans la mesure). */
+    @Benchmark
+    public Object gainWithSoftLimit() throws Throwable {
+        System.arraycopy(gainSource, 0, gainSamples, 0, gainSource.length);
+        return (Object) GAIN.invokeExact(gain, gainBlock);
+    }
+
+    @Benchmark
+    public byte[] endianSwap(Samples samples) throws Throwable {
+        int bytesPerSample = samples.bits / 8;
+        TRANSFORM.invokeExact(samples.bytes, samples.bytes.length, bytesPerSample, bytesPerSample > 1,
+                bytesPerSample > 1 ? -1 : 0);
+        return samples.bytes;
+    }
+}